@@ -1,5 +1,7 @@
 package frc.robot;
 
+import frc.robot.RobotMap.DriveMap;
+import frc.robot.util.DriverProfile;
 import frc.robot.util.controllers.ButtonMap;
 import frc.robot.util.controllers.Xbox;
 
@@ -8,12 +10,20 @@ public class Config {
     public static final boolean SWERVE_ENABLED = true;
     public static final boolean INTAKE_MOTOR_ENABLED = true;
     public static final boolean ELEVATOR_ARM_ENABLED = true;
+    public static final boolean VISION_ENABLED = true;
   }
 
   public class Controllers {
     public static final boolean DRIVER_ENABLED = true;
     public static final boolean OPERATOR_ENABLED = true;
     public static final boolean TESTER_ENABLED = false;
+    /* Log every controller snapshot for replay */
+    public static final boolean RECORD_INPUTS = false;
+  }
+
+  public class Logging {
+    /* Log motor temperature estimates for review in the pits, starts the on-robot data log */
+    public static final boolean RECORD_THERMALS = false;
   }
 
   public static ButtonMap getDriverController() {
@@ -24,4 +34,17 @@ public class Config {
     return new Xbox();
   }
 
+  /**
+   * Profiles offered in the driver's dashboard chooser, the first is the
+   * default.
+   */
+  public static DriverProfile[] getDriverProfiles() {
+    return new DriverProfile[] {
+        new DriverProfile("Default", 2.0, 2.0, DriveMap.MAX_ACCELERATION, DriveMap.MAX_ACCELERATION,
+            DriveMap.MAX_ANGULAR_ACCELERATION, true),
+        // Softer sticks and gentler starts for lining up on the grid
+        new DriverProfile("Precise", 3.0, 2.5, 2.0, 1.5, 10, false) // TODO: TUNE THIS
+    };
+  }
+
 }
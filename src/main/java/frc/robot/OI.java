@@ -39,10 +39,25 @@ public class OI {
     if (Controllers.TESTER_ENABLED) new TwoJoyStickOperatorMap(tester).registerCommands();
   }
 
+  /**
+   * Samples every controller for this loop, see {@link GameController#update()}
+   */
+  public void updateInputs() {
+    driver.update();
+    operator.update();
+    tester.update();
+  }
+
   private OI() {
     driver = new GameController(
         RobotMap.ControllerMap.DRIVER_JOYSTICK, Config.getDriverController());
     operator = new GameController(RobotMap.ControllerMap.OPERATOR_JOYSTICK, Config.getOperatorController());
     tester = new GameController(RobotMap.ControllerMap.TESTER_JOYSTICK, Config.getOperatorController());
+
+    if (Controllers.RECORD_INPUTS) {
+      driver.startRecording();
+      operator.startRecording();
+      tester.startRecording();
+    }
   }
 }
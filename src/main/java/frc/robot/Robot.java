@@ -7,8 +7,18 @@ import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
+import frc.robot.RobotMap.PowerMap;
 import frc.robot.auto.selector.AutoModeSelector;
+import frc.robot.subsystems.ElevatorArm;
+import frc.robot.subsystems.MotorIntake;
+import frc.robot.subsystems.Swerve;
+import frc.robot.subsystems.Vision;
 import frc.robot.util.CTREConfigs;
+import frc.robot.util.PowerManager;
+import frc.robot.util.ThermalMonitor;
+import frc.robot.util.TunableGains;
+import frc.robot.util.drivers.DeviceMonitor;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -37,12 +47,58 @@ public class Robot extends TimedRobot {
 
     var autoTab = Shuffleboard.getTab("Autonomous");
 
-    autoTab.add("Red Autos", autoModeSelector.getRedChooser());
-    autoTab.add("Blue Autos", autoModeSelector.getBlueChooser());
+    autoTab.add("Autos", autoModeSelector.getChooser());
 
     autoTab.add("Auto Wait Time", 0);
 
+    Shuffleboard.getTab("Tuning").add("Snapshot Gains",
+        new InstantCommand(TunableGains::snapshot).ignoringDisable(true));
+
+    // Vision feeds the pose estimate, so it has to exist before auto rather
+    // than when the teleop controls are bound
+    if (Config.Subsystems.SWERVE_ENABLED) {
+      Swerve.getInstance();
+    }
+    if (Config.Subsystems.VISION_ENABLED) {
+      Vision.getInstance();
+    }
+
     OI.getInstance();
+
+    // Bus and device health is sampled off the main loop
+    DeviceMonitor.getInstance();
+
+    registerPowerConsumers();
+  }
+
+  /**
+   * Hands the battery's current budget out in priority order: steering, drive,
+   * elevator, intake, then the compressor, which is paused whenever its full
+   * draw doesn't fit.
+   */
+  private void registerPowerConsumers() {
+    var powerManager = PowerManager.getInstance();
+    if (Config.Subsystems.SWERVE_ENABLED) {
+      powerManager.register("Steer", PowerMap.STEER_PRIORITY, PowerMap.STEER_MIN_CURRENT,
+          PowerMap.STEER_MAX_CURRENT, Swerve.getInstance()::setSteerCurrentLimit);
+      powerManager.register("Drive", PowerMap.DRIVE_PRIORITY, PowerMap.DRIVE_MIN_CURRENT,
+          PowerMap.DRIVE_MAX_CURRENT, Swerve.getInstance()::setDriveCurrentLimit);
+    }
+    if (Config.Subsystems.ELEVATOR_ARM_ENABLED) {
+      powerManager.register("Elevator", PowerMap.ELEVATOR_PRIORITY, PowerMap.ELEVATOR_MIN_CURRENT,
+          PowerMap.ELEVATOR_MAX_CURRENT, ElevatorArm.getInstance()::setCurrentLimit);
+    }
+    if (Config.Subsystems.INTAKE_MOTOR_ENABLED) {
+      powerManager.register("Intake", PowerMap.INTAKE_PRIORITY, PowerMap.INTAKE_MIN_CURRENT,
+          PowerMap.INTAKE_MAX_CURRENT, MotorIntake.getInstance()::setRunCurrentLimit);
+    }
+    powerManager.registerSwitch("Compressor", PowerMap.COMPRESSOR_PRIORITY, PowerMap.COMPRESSOR_CURRENT, on -> {
+      if (on) {
+        compressor.enableDigital();
+      } else {
+        compressor.disable();
+      }
+    });
   }
 
   /**
@@ -57,7 +113,12 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
+    // Sample the controllers once so every command sees the same inputs this loop
+    OI.getInstance().updateInputs();
     CommandScheduler.getInstance().run();
+    TunableGains.updateAll();
+    ThermalMonitor.getInstance().update();
+    PowerManager.getInstance().update();
   }
 
   /**
@@ -80,13 +141,9 @@ public class Robot extends TimedRobot {
   @Override
   public void autonomousInit() {
     CommandScheduler.getInstance().cancelAll();
-    Command autonomousCommand = null;
+    // Paths mirror themselves for the red alliance when they start
+    Command autonomousCommand = AutoModeSelector.getInstance().getChooser().getSelected();
     var allianceColor = DriverStation.getAlliance();
-    if (allianceColor.equals(DriverStation.Alliance.Red)) {
-      autonomousCommand = AutoModeSelector.getInstance().getRedChooser().getSelected();
-    } else if (allianceColor.equals(DriverStation.Alliance.Blue)) {
-      autonomousCommand = AutoModeSelector.getInstance().getBlueChooser().getSelected();
-    }
 
     Shuffleboard.getTab("Autonomous").add("Auto Mode", autonomousCommand);
     Shuffleboard.getTab("Autonomous").add("Alliance", allianceColor);
@@ -28,11 +28,12 @@ public class RobotMap {
      * No need to ever change this unless you are not doing a traditional
      * rectangular/square 4 module swerve
      */
-    public static final SwerveDriveKinematics KINEMATICS = new SwerveDriveKinematics(
+    public static final Translation2d[] MODULE_LOCATIONS = {
         new Translation2d(WHEEL_BASE / 2.0, TRACK_WIDTH / 2.0),
         new Translation2d(WHEEL_BASE / 2.0, -TRACK_WIDTH / 2.0),
         new Translation2d(-WHEEL_BASE / 2.0, TRACK_WIDTH / 2.0),
-        new Translation2d(-WHEEL_BASE / 2.0, -TRACK_WIDTH / 2.0));
+        new Translation2d(-WHEEL_BASE / 2.0, -TRACK_WIDTH / 2.0) };
+    public static final SwerveDriveKinematics KINEMATICS = new SwerveDriveKinematics(MODULE_LOCATIONS);
 
     /* Module Gear Ratios */
     public static final double DRIVE_GEAR_RATIO = MODULE_TYPE.driveGearRatio;
@@ -76,13 +77,18 @@ public class RobotMap {
     public static final double DRIVE_KD = 0.02;
     public static final double DRIVE_KF = 0.0;
 
+    /* Drive Motor Position Hold Values (slot 1), used while the modules are locked */
+    public static final double DRIVE_HOLD_KP = 0.3; // TODO: TUNE THIS
+    public static final double DRIVE_HOLD_KD = 0.0;
+
     /*
      * Drive Motor Characterization Values
-     * Divide SYSID values by 12 to convert from volts to percent output for CTRE
+     * Volts, used until the drive is characterized on the robot. SwerveModule
+     * divides by 12 to convert to percent output for CTRE
      */
-    public static final double DRIVE_KS = (0.32 / 12);
-    public static final double DRIVE_KV = (1.51 / 12);
-    public static final double DRIVE_KA = (0.27 / 12);
+    public static final double DRIVE_KS = 0.32;
+    public static final double DRIVE_KV = 1.51;
+    public static final double DRIVE_KA = 0.27;
 
     /* Swerve Profiling Values */
     /** Meters per Second */
@@ -92,12 +98,46 @@ public class RobotMap {
 
     /* Meteres per second squared */
     public static final double MAX_ACCELERATION = 3; // TODO: TUNE THIS
+    /* Radians per second squared */
+    public static final double MAX_ANGULAR_ACCELERATION = 20; // TODO: TUNE THIS
+
+    /*
+     * Yaw Latency
+     * The Pigeon's YPR frame carries no timestamp, so it is sent at a fixed
+     * period and read as half a period plus the CAN transfer old
+     */
+    public static final int PIGEON_YAW_FRAME_PERIOD_MS = 10;
+    public static final double PIGEON_CAN_LATENCY = 0.002;
+    public static final double PIGEON_YAW_AGE = PIGEON_YAW_FRAME_PERIOD_MS / 2000.0 + PIGEON_CAN_LATENCY;
+
+    /* Meters driven before odometry drift against vision is reported */
+    public static final double DRIFT_MIN_DISTANCE = 1.0;
+
+    /* Traction Control */
+    public static final boolean TRACTION_CONTROL = true;
+    /* Meters per second of wheel speed error before a module counts as slipping */
+    public static final double SLIP_SPEED_TOLERANCE = 0.3;
+    /* Fraction of the expected wheel speed the error must also exceed */
+    public static final double SLIP_RATIO = 0.25;
+    /* Expected speeds below this are treated as this when computing the ratio */
+    public static final double SLIP_MIN_SPEED = 0.5;
+    /* Meters per second a slipping wheel may be commanded above its expected speed */
+    public static final double SLIP_SPEED_MARGIN = 0.3;
+    /* How much of a slipping module's own distance odometry still trusts */
+    public static final double SLIP_ODOMETRY_WEIGHT = 0.2;
 
     /* Neutral Modes */
     public static final NeutralMode ROTATOR_NEUTRAL_MODE = NeutralMode.Coast;
     public static final NeutralMode DRIVE_NEUTRAL_MODE = NeutralMode.Brake; // TODO Change back
 
-    /* Module Specific Constants */
+    /* Degrees the integrated and absolute module angles may disagree before re-seeding */
+    public static final double ABSOLUTE_RESEED_THRESHOLD = 1.5;
+
+    /*
+     * Module Specific Constants
+     * OFFSET is only the default, calibrated offsets are stored in Preferences
+     * (Swerve tab -> Calibrate Offsets)
+     */
     /* Front Left Module - Module 0 */
     public static final class FrontLeft {
       public static final int DRIVE_ID = 5;
@@ -147,15 +187,46 @@ public class RobotMap {
   }
 
   public static class ChargingStationMap {
-    // TODO tune once robot complete
+    /* Meters per second of drive per degree of tilt */
     public static final double kP = 0.07;
-    public static final double kI = 0.0;
-    public static final double kD = 0.0;
+    /* Meters per second of drive per degree per second of tilt rate */
+    public static final double kD = 0.01;
     public static final double MAX_VELOCITY = 2;
+
+    /* Degrees off level that count as balanced */
+    public static final double TILT_TOLERANCE = 2.5;
+    /* Seconds the station has to stay level before we lock */
+    public static final double LEVEL_TIME = 0.15;
+    /* Degrees per second of falling tilt that mean the station is tipping */
+    public static final double TIPPING_RATE = 12;
   }
 
   public static class MotorIntakeMap {
     public static final int MOTOR_ID = 2;
+
+    /* Amps */
+    public static final int RUN_CURRENT_LIMIT = 30;
+    public static final int HOLD_CURRENT_LIMIT = 8;
+    public static final double HOLD_OUTPUT = 0.1;
+
+    /* NEO at 12 V, detection scales these by the commanded output */
+    public static final double MOTOR_FREE_SPEED = 5676; // RPM
+    public static final double MOTOR_STALL_CURRENT = 105; // amps
+
+    /*
+     * Fractions of the free speed and stall current expected at the commanded
+     * output, stall current capped at the current limit. TODO: check on robot
+     */
+    /* Piece seated: rollers stalled against it while intaking */
+    public static final double STALL_CURRENT_FRACTION = 0.6;
+    public static final double STALL_VELOCITY_FRACTION = 0.15;
+    /* Piece gone: rollers spinning freely while ejecting */
+    public static final double FREE_CURRENT_FRACTION = 0.3;
+    public static final double FREE_VELOCITY_FRACTION = 0.7;
+
+    public static final double SPINUP_TIME = 0.25; // seconds ignored after the rollers start
+    public static final double DETECT_TIME = 0.1; // seconds a condition must hold
+    public static final double EJECT_TIMEOUT = 1.0; // seconds
   }
 
   public static class ElevatorMap {
@@ -169,6 +240,28 @@ public class RobotMap {
     public static final double PIVOT_TOP = 20;
     public static final double MIDPOINT2 = 15;
 
+    /*
+     * Converts pivot encoder rotations to radians above horizontal for the arm
+     * feedforward
+     */
+    public static final double PIVOT_GEAR_RATIO = 100; // TODO: CHECK THIS
+    public static final double PIVOT_HORIZONTAL_POSITION = 0; // TODO: MEASURE THIS
+    /* Keep the arm feedforward and its characterization off until both are measured */
+    public static final boolean PIVOT_FEEDFORWARD_ENABLED = false;
+
+    /* SPARK MAX PID defaults, edited live through TunableGains */
+    public static final double ELEVATOR_KP = 5;
+    public static final double ELEVATOR_KI = 0;
+    public static final double ELEVATOR_KD = 0;
+
+    public static final double PIVOT_KP = 0.1;
+    public static final double PIVOT_KI = 0.001;
+    public static final double PIVOT_KD = 0;
+
+    /*
+     * Feedforward defaults in volts, used until the mechanism is characterized.
+     * Fitted values are stored in Preferences
+     */
     public static final double PIVOT_KS = 0;
     public static final double PIVOT_KG = 0;
     public static final double PIVOT_KV = 0;
@@ -178,11 +271,184 @@ public class RobotMap {
     public static final double ELEVATOR_KG = 0;
     public static final double ELEVATOR_KV = 0;
     public static final double ELEVATOR_KA = 0;
+
+    /* Per motor, amps. The power manager lowers this when the battery is struggling */
+    public static final int CURRENT_LIMIT = 40;
+  }
+
+  public static class TuningMap {
+    /* Seconds between checks for edited gains */
+    public static final double UPDATE_PERIOD = 0.5;
+  }
+
+  public static class CharacterizationMap {
+    public static final double SAMPLE_PERIOD = 0.005;
+    public static final int MAX_SAMPLES = 8192;
+    /* Seconds before a single quasistatic or dynamic test is cut off */
+    public static final double TEST_TIMEOUT = 8;
+    /* Seconds between tests for the mechanism to come to rest */
+    public static final double REST_TIME = 1.5;
+    /* Samples slower than this (position units per second) don't show kS and are skipped */
+    public static final double MIN_VELOCITY = 0.02;
+    public static final int MIN_SAMPLES = 50;
+
+    public static final double DRIVE_RAMP_RATE = 1.0; // volts per second
+    public static final double DRIVE_STEP_VOLTAGE = 6.0;
+    /* Meters either side of the starting point the drive tests stay within */
+    public static final double DRIVE_MAX_TRAVEL = 3.0;
+    public static final double ELEVATOR_RAMP_RATE = 0.5;
+    public static final double ELEVATOR_STEP_VOLTAGE = 3.0;
+    public static final double PIVOT_RAMP_RATE = 0.25;
+    public static final double PIVOT_STEP_VOLTAGE = 2.0;
+  }
+
+  public static class VisionMap {
+    /* NetworkTables names of each Limelight, primary camera first */
+    public static final String[] CAMERA_NAMES = { "limelight" };
+
+    /* Parse each camera's JSON dump in the background for fiducial results */
+    public static final boolean PARSE_JSON_RESULTS = true;
+    public static final double JSON_PARSE_PERIOD = 0.02;
+    /* Single tag botposes jump too much to measure odometry drift against */
+    public static final int MIN_REFERENCE_TAGS = 2;
+
+    /* Auto-align to scoring nodes */
+    public static final double NODE_STANDOFF = 0.75; // meters from the tag face to robot center
+    public static final double ALIGN_MAX_VELOCITY = 2.5;
+    public static final double ALIGN_MAX_ACCELERATION = 4;
+    public static final double ALIGN_TIMEOUT_MARGIN = 0.5; // seconds allowed past the path's own duration
+    public static final double POSE_HISTORY_SECONDS = 1.5;
   }
 
   public static class PPMap {
     public static final int MAX_VELOCITY = 5;
     public static final int MAX_ACCELERATION = 4;
+
+    /* Holonomic path following, meters per second per meter and radians per second per radian */
+    public static final double TRANSLATION_KP = 5.0;
+    public static final double TRANSLATION_KI = 0.0;
+    public static final double TRANSLATION_KD = 0.0;
+    public static final double ROTATION_KP = 1.0;
+    public static final double ROTATION_KI = 0.0;
+    public static final double ROTATION_KD = 0.0;
+
+    /* Meters off a chained path's start before a joining path is generated */
+    public static final double WARM_START_TOLERANCE = 0.1;
+
+    /* Blue origin field length, paths are drawn for blue and mirrored across its midline for red */
+    public static final double FIELD_LENGTH = 16.54175;
+    /* Width PathPlannerLib mirrors red paths across, must match its FIELD_WIDTH_METERS */
+    public static final double FIELD_WIDTH = 8.02;
+  }
+
+  public static class CANMap {
+    /* How often devices are checked for resets, seconds */
+    public static final double RESET_CHECK_PERIOD = 0.1;
+    /* Config calls block the monitor thread, never the main loop */
+    public static final int CONFIG_TIMEOUT_MS = 50;
+
+    /* Bus and device health is sampled this often, seconds, and summarized over the last HEALTH_WINDOW samples */
+    public static final double HEALTH_PERIOD = 0.5;
+    public static final int HEALTH_WINDOW = 20;
+  }
+
+  public static class NavMap {
+    public static final double RESOLUTION = 0.1; // meters per grid cell
+
+    /* Obstacles are grown by this much so planning can treat the robot as a point */
+    public static final double ROBOT_RADIUS = 0.45;
+
+    /* Blue side obstacles as {minX, minY, maxX, maxY}, mirrored for red */
+    public static final double[][] OBSTACLES = {
+        { 0.0, 0.0, 1.38, 5.49 }, // Grids
+        { 2.92, 1.51, 4.85, 3.98 }, // Charging station
+        { 0.0, 5.47, 3.36, 5.51 } // Community barrier
+    };
+
+    public static final double MAX_VELOCITY = 3.0;
+    public static final double MAX_ACCELERATION = 3.0;
+
+    /* Seconds between trajectory samples checked against the grid */
+    public static final double CHECK_PERIOD = 0.02;
+    /* Times the corners are split in half when the trajectory swings into an obstacle */
+    public static final int MAX_SUBDIVISIONS = 2;
+  }
+
+  public static class PowerMap {
+    /* Battery plus main wiring, ohms. The bus sags by this much per amp drawn */
+    public static final double BATTERY_RESISTANCE = 0.025;
+    /* Budget keeps the bus above this, well clear of the 6.8 V brownout */
+    public static final double MIN_VOLTAGE = 8.0;
+    /* Amps the budget doesn't control: roboRIO, radio, sensors */
+    public static final double BASE_LOAD = 10;
+    /* Seconds, smooths the open circuit voltage estimate */
+    public static final double VOLTAGE_TIME_CONSTANT = 0.5;
+
+    /* Limits are only cut once demand reaches this fraction of what's available, and restored below the second */
+    public static final double HIGH_DEMAND_FRACTION = 0.8;
+    public static final double RELEASE_FRACTION = 0.6;
+    /* Amps a limit has to move by before it's sent to the controller */
+    public static final double LIMIT_STEP = 5;
+    /* Seconds a higher allocation has to hold before a limit is raised again */
+    public static final double RESTORE_DELAY = 0.5;
+
+    /* Lower numbers are served first. Currents are amps for the whole mechanism */
+    public static final int STEER_PRIORITY = 0;
+    public static final double STEER_MIN_CURRENT = 4 * 10;
+    public static final double STEER_MAX_CURRENT = 4 * DriveMap.ROTATOR_PEAK_CURRENT_LIMIT;
+
+    public static final int DRIVE_PRIORITY = 1;
+    public static final double DRIVE_MIN_CURRENT = 4 * 20;
+    public static final double DRIVE_MAX_CURRENT = 4 * DriveMap.DRIVE_PEAK_CURRENT_LIMIT;
+
+    public static final int ELEVATOR_PRIORITY = 2;
+    public static final double ELEVATOR_MIN_CURRENT = 2 * 20;
+    public static final double ELEVATOR_MAX_CURRENT = 2 * ElevatorMap.CURRENT_LIMIT;
+
+    public static final int INTAKE_PRIORITY = 3;
+    /* Stall detection scales with the limit, keep it well clear of the rollers' running current */
+    public static final double INTAKE_MIN_CURRENT = 20;
+    public static final double INTAKE_MAX_CURRENT = MotorIntakeMap.RUN_CURRENT_LIMIT;
+
+    public static final int COMPRESSOR_PRIORITY = 4;
+    /* The compressor either runs or doesn't, so it only gets its full draw or nothing */
+    public static final double COMPRESSOR_CURRENT = 12;
+  }
+
+  public static class ThermalMap {
+    public static final double AMBIENT_TEMPERATURE = 25; // Celsius
+
+    /*
+     * Lumped model per motor: winding resistance in ohms, degrees per watt at
+     * steady state and time constant in seconds. TODO: fit from match logs
+     */
+    public static final double FALCON_RESISTANCE = 12.0 / 257; // stall voltage over stall current
+    public static final double FALCON_THERMAL_RESISTANCE = 1.0;
+    public static final double FALCON_TIME_CONSTANT = 200;
+    /* Where the Falcon starts protecting itself */
+    public static final double FALCON_LIMIT = 100;
+
+    public static final double NEO_RESISTANCE = 12.0 / 105;
+    public static final double NEO_THERMAL_RESISTANCE = 1.0;
+    public static final double NEO_TIME_CONSTANT = 150;
+    public static final double NEO_LIMIT = 100;
+
+    /* Seconds for the estimate to settle onto the controller's reading */
+    public static final double CORRECTION_TIME_CONSTANT = 5;
+    /* Seconds, smooths heating power so a single shove doesn't derate */
+    public static final double POWER_TIME_CONSTANT = 2;
+
+    /* Derating follows the temperature predicted this many seconds ahead */
+    public static final double PREDICTION_HORIZON = 10;
+    /* Degrees below the limit where derating starts and where it bottoms out */
+    public static final double DERATE_START_MARGIN = 30;
+    public static final double DERATE_END_MARGIN = 5;
+    public static final double MIN_DERATE = 0.4;
+
+    /* Time to limit is reported capped at this, seconds */
+    public static final double MAX_TIME_TO_LIMIT = 600;
+    /* Dashboard and log are updated this often, seconds */
+    public static final double PUBLISH_PERIOD = 0.25;
   }
   
 }
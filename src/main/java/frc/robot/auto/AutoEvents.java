@@ -0,0 +1,106 @@
+package frc.robot.auto;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+
+import com.pathplanner.lib.PathPlannerTrajectory.StopEvent;
+import com.pathplanner.lib.commands.CommandUtil;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
+import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
+import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
+import edu.wpi.first.wpilibj2.command.RunCommand;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import edu.wpi.first.wpilibj2.command.WaitCommand;
+import frc.robot.Config;
+import frc.robot.subsystems.ElevatorArm;
+import frc.robot.subsystems.MotorIntake;
+
+/**
+ * Named commands that PathPlanner markers and stop events refer to. Every
+ * auto shares the one event map, so a name used in the path files only has to
+ * be defined here.
+ */
+public class AutoEvents {
+  public static final String SCORE = "Score";
+  public static final String RETRACT = "Retract";
+  /* Every name the event map can hold, checked against the path files by AutoEventsTest */
+  public static final Set<String> NAMES = Set.of(SCORE, RETRACT);
+
+  private static HashMap<String, Command> eventMap;
+
+  public static HashMap<String, Command> getEventMap() {
+    if (eventMap == null) {
+      eventMap = new HashMap<>();
+      registerEvents();
+    }
+    return eventMap;
+  }
+
+  private static void registerEvents() {
+    var elevatorArm = ElevatorArm.getInstance();
+    var motorIntake = MotorIntake.getInstance();
+
+    if (Config.Subsystems.ELEVATOR_ARM_ENABLED && Config.Subsystems.INTAKE_MOTOR_ENABLED) {
+      eventMap.put(SCORE, new SequentialCommandGroup(
+          elevatorArm.movePivotCommand(() -> ElevatorArm.PivotPosition.TOP),
+          new RunCommand(() -> elevatorArm.moveElevator(0.7), elevatorArm)
+              .until(elevatorArm::getTopSwitch),
+          motorIntake.ejectCommand()));
+    }
+
+    if (Config.Subsystems.ELEVATOR_ARM_ENABLED) {
+      eventMap.put(RETRACT, new SequentialCommandGroup(
+          elevatorArm.movePivotCommand(() -> ElevatorArm.PivotPosition.SUBSTATION)
+              .alongWith(new RunCommand(() -> elevatorArm.moveElevator(-0.7), elevatorArm)
+                  .until(elevatorArm::getBottomSwitch)),
+          elevatorArm.movePivotCommand(() -> ElevatorArm.PivotPosition.DEFAULT)));
+    }
+  }
+
+  /**
+   * Builds the command for a stop event at the start or end of a path,
+   * following its execution and wait behavior the same way PathPlanner's auto
+   * builder does. Names missing from the event map are skipped.
+   */
+  public static Command stopEventCommand(StopEvent event, HashMap<String, Command> eventMap) {
+    Command events;
+    switch (event.executionBehavior) {
+      case SEQUENTIAL:
+        events = new SequentialCommandGroup(eventCommands(event, eventMap));
+        break;
+      case PARALLEL_DEADLINE:
+        Command[] commands = eventCommands(event, eventMap);
+        events = (commands.length == 0)
+            ? new InstantCommand()
+            : new ParallelDeadlineGroup(commands[0], Arrays.copyOfRange(commands, 1, commands.length));
+        break;
+      case PARALLEL:
+      default:
+        events = new ParallelCommandGroup(eventCommands(event, eventMap));
+    }
+
+    switch (event.waitBehavior) {
+      case BEFORE:
+        return new WaitCommand(event.waitTime).andThen(events);
+      case AFTER:
+        return events.andThen(new WaitCommand(event.waitTime));
+      case DEADLINE:
+        return new ParallelDeadlineGroup(new WaitCommand(event.waitTime), events);
+      case MINIMUM:
+        return new ParallelCommandGroup(new WaitCommand(event.waitTime), events);
+      case NONE:
+      default:
+        return events;
+    }
+  }
+
+  private static Command[] eventCommands(StopEvent event, HashMap<String, Command> eventMap) {
+    return event.names.stream()
+        .filter(eventMap::containsKey)
+        .map(name -> CommandUtil.wrappedEventCommand(eventMap.get(name)))
+        .toArray(Command[]::new);
+  }
+}
@@ -0,0 +1,21 @@
+package frc.robot.auto.modes;
+
+import java.util.HashMap;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.robot.auto.AutoEvents;
+import frc.robot.subsystems.Swerve;
+
+public class BarrierToCS extends SequentialCommandGroup {
+    public BarrierToCS() {
+        String path = "Barrier Score to CS out of Community";
+        HashMap<String, Command> eventMap = AutoEvents.getEventMap();
+
+        var swerve = Swerve.getInstance();
+        addCommands(
+            swerve.followPathGroupCommand(path, eventMap),
+            swerve.chargingStationCommand()
+        );
+    }
+}
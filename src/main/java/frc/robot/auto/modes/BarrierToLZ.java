@@ -0,0 +1,20 @@
+package frc.robot.auto.modes;
+
+import java.util.HashMap;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.robot.auto.AutoEvents;
+import frc.robot.subsystems.Swerve;
+
+public class BarrierToLZ extends SequentialCommandGroup {
+    public BarrierToLZ() {
+        String path = "Barrier Score to LZ prep";
+        HashMap<String, Command> eventMap = AutoEvents.getEventMap();
+
+        var swerve = Swerve.getInstance();
+        addCommands(
+            swerve.followTrajectoryCommand(path, eventMap, true)
+        );
+    }
+}
@@ -0,0 +1,28 @@
+package frc.robot.auto.modes;
+
+import java.util.HashMap;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.ConditionalCommand;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.robot.auto.AutoEvents;
+import frc.robot.subsystems.Swerve;
+import frc.robot.util.AllianceFlip;
+
+public class MidToCS extends SequentialCommandGroup {
+    public MidToCS() {
+        String path = "Mid Score to CS no Leaving";
+        HashMap<String, Command> eventMap = AutoEvents.getEventMap();
+
+        var swerve = Swerve.getInstance();
+        addCommands(
+            // Red keeps the start it used before paths were mirrored until the drive
+            // team settles on one. Its override is still drawn for blue
+            new ConditionalCommand(
+                swerve.followTrajectoryCommand(path + " Red", eventMap, true),
+                swerve.followTrajectoryCommand(path, eventMap, true),
+                AllianceFlip::shouldFlip),
+            swerve.chargingStationCommand()
+        );
+    }
+}
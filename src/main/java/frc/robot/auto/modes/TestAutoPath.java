@@ -14,7 +14,7 @@ import frc.robot.subsystems.MotorIntake;
 @SuppressWarnings("all") // May be useful to remove this when uncommenting elevaotr and pivot code
 public class TestAutoPath extends SequentialCommandGroup{
     public TestAutoPath() {
-        String path = "Test Path Red"; //TODO Set Alliance Colour
+        String path = "Test Path";
         HashMap<String, Command> eventMap = new HashMap<String, Command>();
 
         var swerve = Swerve.getInstance();
@@ -13,33 +13,22 @@ public class AutoModeSelector implements AutoModeList {
     return instance;
   }
 
-  private final SendableChooser<Command> modeChooserRed;
-  private final SendableChooser<Command> modeChooserBlue;
+  private final SendableChooser<Command> modeChooser;
 
   private AutoModeSelector() {
-    modeChooserRed = new SendableChooser<>();
-    modeChooserBlue = new SendableChooser<>();
+    modeChooser = new SendableChooser<>();
     updateAutoModeSelector();
   }
 
   public void updateAutoModeSelector() {
-    modeChooserRed.setDefaultOption("DO_NOTHING", AutoModeListRed.DO_NOTHING.getAuto());
-    modeChooserBlue.setDefaultOption("DO_NOTHING", AutoModeListBlue.DO_NOTHING.getAuto());
+    modeChooser.setDefaultOption("DO_NOTHING", AutoModes.DO_NOTHING.getAuto());
 
-    for (AutoModeListRed auto : AutoModeListRed.values()) {
-      modeChooserRed.addOption(auto.name(), auto.getAuto());
+    for (AutoModes auto : AutoModes.values()) {
+      modeChooser.addOption(auto.name(), auto.getAuto());
     }
-
-    for (AutoModeListBlue auto : AutoModeListBlue.values()) {
-      modeChooserBlue.addOption(auto.name(), auto.getAuto());
-    }
-  }
-
-  public SendableChooser<Command> getRedChooser() {
-    return modeChooserRed;
   }
 
-  public SendableChooser<Command> getBlueChooser() {
-    return modeChooserBlue;
+  public SendableChooser<Command> getChooser() {
+    return modeChooser;
   }
 }
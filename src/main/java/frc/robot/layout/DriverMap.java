@@ -1,24 +1,98 @@
 package frc.robot.layout;
 
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
 import frc.robot.Config;
+import frc.robot.RobotMap;
+import frc.robot.RobotMap.VisionMap;
 import frc.robot.subsystems.Swerve;
+import frc.robot.subsystems.Vision;
+import frc.robot.util.ChassisSpeedsLimiter;
+import frc.robot.util.DriverProfile;
 import frc.robot.util.controllers.CommandMap;
 import frc.robot.util.controllers.GameController;
 
 public abstract class DriverMap extends CommandMap {
+  private static SendableChooser<DriverProfile> profileChooser;
+
+  protected DriverProfile profile;
+  private final ChassisSpeedsLimiter limiter;
 
   public DriverMap(GameController controller) {
     super(controller);
+    profile = getProfileChooser().getSelected();
+    limiter = new ChassisSpeedsLimiter(profile.maxAcceleration, profile.maxAxisAcceleration,
+        profile.maxAngularAcceleration);
+  }
+
+  private static SendableChooser<DriverProfile> getProfileChooser() {
+    if (profileChooser == null) {
+      profileChooser = new SendableChooser<>();
+      DriverProfile[] profiles = Config.getDriverProfiles();
+      profileChooser.setDefaultOption(profiles[0].name, profiles[0]);
+      for (int i = 1; i < profiles.length; i++) {
+        profileChooser.addOption(profiles[i].name, profiles[i]);
+      }
+      Shuffleboard.getTab("Driver").add("Driver Profile", profileChooser);
+    }
+    return profileChooser;
+  }
+
+  /**
+   * Picks up a new selection from the dashboard. Speeds already reached are
+   * kept so switching mid-match doesn't jerk the robot.
+   */
+  private void updateProfile() {
+    DriverProfile selected = profileChooser.getSelected();
+    if (selected != null && selected != profile) {
+      profile = selected;
+      limiter.setLimits(profile.maxAcceleration, profile.maxAxisAcceleration, profile.maxAngularAcceleration);
+    }
+  }
+
+  /**
+   * Applies the driver's stick curves and acceleration limits.
+   *
+   * @param forward Deadbanded stick value, forward positive
+   * @param left    Deadbanded stick value, left positive
+   * @param ccw     Deadbanded stick value, counter-clockwise positive
+   * @return Field relative speeds
+   */
+  protected ChassisSpeeds shapeFieldRelativeSpeeds(double forward, double left, double ccw) {
+    updateProfile();
+
+    // Curve the stick magnitude rather than each axis so diagonals stay straight
+    double magnitude = Math.min(Math.hypot(forward, left), 1.0);
+    double scale = (magnitude > 0)
+        ? profile.shapeTranslation(magnitude) / magnitude * RobotMap.DriveMap.MAX_VELOCITY
+        : 0;
+    double rot = profile.shapeRotation(ccw) * RobotMap.DriveMap.MAX_ANGULAR_VELOCITY;
+
+    return limiter.calculate(forward * scale, left * scale, rot);
   }
 
   abstract ChassisSpeeds getChassisSpeeds();
 
+  abstract JoystickButton getAlignButton();
+
+  abstract JoystickButton getLockButton();
+
   void registerSwerve() {
     var swerve = Swerve.getInstance();
-    swerve.setDefaultCommand(swerve.driveCommand(this::getChassisSpeeds));
+    swerve.setDefaultCommand(swerve.driveCommand(this::getChassisSpeeds, () -> profile.isOpenLoop));
+    getLockButton().onTrue(new InstantCommand(() -> {
+      // Drop any speed still ramping down so the lock isn't released right away
+      limiter.reset(new ChassisSpeeds());
+      swerve.lock();
+    }));
+
+    if (Config.Subsystems.VISION_ENABLED) {
+      getAlignButton().whileTrue(
+          swerve.alignToNodeCommand(Vision.getInstance().getCamera(0), VisionMap.NODE_STANDOFF));
+    }
   }
 
   @Override
@@ -2,7 +2,6 @@ package frc.robot.layout;
 
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
-import frc.robot.RobotMap;
 import frc.robot.subsystems.Swerve;
 import frc.robot.util.controllers.ButtonMap.Axis;
 import frc.robot.util.controllers.ButtonMap.Button;
@@ -16,12 +15,24 @@ public class TwoJoyStickDriverMap extends DriverMap {
 
   @Override
   public ChassisSpeeds getChassisSpeeds() {
-    var x = controller.getAxis(Axis.AXIS_LEFT_X) * RobotMap.DriveMap.MAX_VELOCITY ;
-    var y = controller.getAxis(Axis.AXIS_LEFT_Y) * RobotMap.DriveMap.MAX_VELOCITY;
-    var rot = controller.getAxis(Axis.AXIS_RIGHT_X) * RobotMap.DriveMap.MAX_ANGULAR_VELOCITY;
+    var x = controller.getDeadbandedAxis(Axis.AXIS_LEFT_X);
+    var y = controller.getDeadbandedAxis(Axis.AXIS_LEFT_Y);
+    var rot = controller.getDeadbandedAxis(Axis.AXIS_RIGHT_X);
 
+    var speeds = shapeFieldRelativeSpeeds(-y, -x, -rot);
     var swerve = Swerve.getInstance();
-    return ChassisSpeeds.fromFieldRelativeSpeeds(-y, -x, -rot, swerve.getYaw());
+    return ChassisSpeeds.fromFieldRelativeSpeeds(
+        speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond, swerve.getYaw());
+  }
+
+  @Override
+  public JoystickButton getAlignButton() {
+    return controller.getButton(Button.BUTTON_RIGHT_BUMPER);
+  }
+
+  @Override
+  public JoystickButton getLockButton() {
+    return controller.getButton(Button.BUTTON_X);
   }
 
   @Override
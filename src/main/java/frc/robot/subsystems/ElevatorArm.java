@@ -4,15 +4,26 @@ import java.util.function.Supplier;
 
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.ControlType;
-import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import com.revrobotics.SparkMaxLimitSwitch;
+import com.revrobotics.SparkMaxPIDController.ArbFFUnits;
 
+import edu.wpi.first.math.controller.ArmFeedforward;
+import edu.wpi.first.math.controller.ElevatorFeedforward;
+import edu.wpi.first.networktables.GenericEntry;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.RunCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.RobotMap.CharacterizationMap;
 import frc.robot.RobotMap.ElevatorMap;
+import frc.robot.util.FeedforwardCharacterizer;
+import frc.robot.util.FeedforwardCharacterizer.Mechanism;
+import frc.robot.util.FeedforwardGains;
+import frc.robot.util.ThermalMonitor;
+import frc.robot.util.TunableGains;
+import frc.robot.util.drivers.DeviceFactory;
+import frc.robot.util.drivers.SparkMaxFactory;
 
 public class ElevatorArm extends SubsystemBase {
     private static ElevatorArm instance;
@@ -91,21 +102,34 @@ public class ElevatorArm extends SubsystemBase {
 
     private CANSparkMax elevatorMotor, pivotMotor;
     private SparkMaxLimitSwitch forwardLimit, reverseLimit;
-    private double elevatorP, elevatorI, elevatorD;
-    private double pivotP, pivotI, pivotD;
+    private ElevatorFeedforward elevatorFeedforward;
+    private ArmFeedforward pivotFeedforward;
+
+    /* Last encoder readings, restored if a controller resets mid-match */
+    private volatile double lastElevatorPosition = 0, lastPivotPosition = 0;
+    /* Per motor, lowered by the power manager when the battery is struggling */
+    private volatile int currentLimit = ElevatorMap.CURRENT_LIMIT;
+    private final GenericEntry topSwitchEntry, bottomSwitchEntry, pivotEncoderEntry, elevatorEncoderEntry;
+    private final TunableGains elevatorGains = TunableGains.pid("Elevator", ElevatorMap.ELEVATOR_KP,
+            ElevatorMap.ELEVATOR_KI, ElevatorMap.ELEVATOR_KD);
+    private final TunableGains pivotGains = TunableGains.pid("Pivot", ElevatorMap.PIVOT_KP, ElevatorMap.PIVOT_KI,
+            ElevatorMap.PIVOT_KD);
 
     private ElevatorArm() {
-        elevatorP = 5;
-        elevatorI = 0;
-        elevatorD = 0;
-        pivotP = 0.1;
-        pivotI = 0.001;
-        pivotD = 0;
-
-        elevatorMotor = new CANSparkMax(ElevatorMap.ELEVATOR_MOTOR_ID, MotorType.kBrushless);
-        pivotMotor = new CANSparkMax(ElevatorMap.PIVOT_MOTOR_ID, MotorType.kBrushless);
-        elevatorMotor.restoreFactoryDefaults();
-        pivotMotor.restoreFactoryDefaults();
+        // Only the gains from boot are burned to flash, so a reset controller
+        // also needs the ones tuned since
+        elevatorMotor = DeviceFactory.createSparkMax("Elevator", ElevatorMap.ELEVATOR_MOTOR_ID,
+                SparkMaxFactory.kMechanismConfiguration, spark -> {
+                    spark.getEncoder().setPosition(lastElevatorPosition);
+                    spark.setSmartCurrentLimit(currentLimit);
+                    elevatorGains.apply(spark.getPIDController());
+                });
+        pivotMotor = DeviceFactory.createSparkMax("Pivot", ElevatorMap.PIVOT_MOTOR_ID,
+                SparkMaxFactory.kMechanismConfiguration, spark -> {
+                    spark.getEncoder().setPosition(lastPivotPosition);
+                    spark.setSmartCurrentLimit(currentLimit);
+                    pivotGains.apply(spark.getPIDController());
+                });
 
         forwardLimit = elevatorMotor.getForwardLimitSwitch(SparkMaxLimitSwitch.Type.kNormallyOpen);
         forwardLimit.enableLimitSwitch(true);
@@ -115,16 +139,47 @@ public class ElevatorArm extends SubsystemBase {
         elevatorMotor.setClosedLoopRampRate(0.05);
         pivotMotor.setClosedLoopRampRate(0.05);
 
-        setMotorPID(elevatorMotor, elevatorP, elevatorI, elevatorD);
+        elevatorGains.onChange(gains -> gains.apply(elevatorMotor.getPIDController()));
         elevatorMotor.getPIDController().setIZone(0);
         elevatorMotor.getPIDController().setFF(0.000156);
         elevatorMotor.getPIDController().setOutputRange(-1, 1);
 
-        setMotorPID(pivotMotor, pivotP, pivotI, pivotD);
+        pivotGains.onChange(gains -> gains.apply(pivotMotor.getPIDController()));
 
         elevatorMotor.burnFlash();
         pivotMotor.burnFlash();
+        // Current limits change while driving, don't block the loop waiting for acks
+        elevatorMotor.setCANTimeout(0);
+        pivotMotor.setCANTimeout(0);
 
+        ThermalMonitor.getInstance().register("Elevator", "Elevator", ThermalMonitor.MotorType.NEO,
+                elevatorMotor::getOutputCurrent, elevatorMotor::getMotorTemperature);
+        ThermalMonitor.getInstance().register("Pivot", "Elevator", ThermalMonitor.MotorType.NEO,
+                pivotMotor::getOutputCurrent, pivotMotor::getMotorTemperature);
+
+        elevatorFeedforward = FeedforwardGains.load("Elevator", ElevatorMap.ELEVATOR_KS, ElevatorMap.ELEVATOR_KG,
+                ElevatorMap.ELEVATOR_KV, ElevatorMap.ELEVATOR_KA).toElevatorFeedforward();
+        pivotFeedforward = FeedforwardGains.load("Pivot", ElevatorMap.PIVOT_KS, ElevatorMap.PIVOT_KG,
+                ElevatorMap.PIVOT_KV, ElevatorMap.PIVOT_KA).toArmFeedforward();
+
+        var elevatorTab = Shuffleboard.getTab("Elevator");
+        elevatorTab.add("Characterize Elevator", characterizeElevatorCommand());
+        if (ElevatorMap.PIVOT_FEEDFORWARD_ENABLED) {
+            elevatorTab.add("Characterize Pivot", characterizePivotCommand());
+        }
+        topSwitchEntry = elevatorTab.add("Top Switch", false).getEntry();
+        bottomSwitchEntry = elevatorTab.add("Bottom Switch", false).getEntry();
+        pivotEncoderEntry = elevatorTab.add("Pivot Encoder", 0.0).getEntry();
+        elevatorEncoderEntry = elevatorTab.add("Elevator Encoder", 0.0).getEntry();
+    }
+
+    /**
+     * @param amps Total for the elevator and pivot motors, split evenly
+     */
+    public void setCurrentLimit(double amps) {
+        currentLimit = (int) (amps / 2);
+        elevatorMotor.setSmartCurrentLimit(currentLimit);
+        pivotMotor.setSmartCurrentLimit(currentLimit);
     }
 
     public void setMotorPID(CANSparkMax motor, double kP, double kI, double kD) {
@@ -134,7 +189,9 @@ public class ElevatorArm extends SubsystemBase {
     }
 
     public void moveElevator(ElevatorPosition setPoint) {
-        elevatorMotor.getPIDController().setReference(setPoint.getEncoderPos(), ControlType.kSmartMotion);
+        // Hold up the carriage's weight so the PID only has to correct error
+        elevatorMotor.getPIDController().setReference(setPoint.getEncoderPos(), ControlType.kSmartMotion, 0,
+                elevatorFeedforward.calculate(0), ArbFFUnits.kVoltage);
     }
 
     // Elevator Functionality
@@ -149,7 +206,20 @@ public class ElevatorArm extends SubsystemBase {
     }
 
     public void movePivot(PivotPosition setPoint) {
-        pivotMotor.getPIDController().setReference(setPoint.getEncoderPos(), ControlType.kPosition);
+        if (ElevatorMap.PIVOT_FEEDFORWARD_ENABLED) {
+            pivotMotor.getPIDController().setReference(setPoint.getEncoderPos(), ControlType.kPosition, 0,
+                    pivotFeedforward.calculate(getPivotAngle(), 0), ArbFFUnits.kVoltage);
+        } else {
+            pivotMotor.getPIDController().setReference(setPoint.getEncoderPos(), ControlType.kPosition);
+        }
+    }
+
+    /**
+     * @return Pivot angle above horizontal in radians
+     */
+    public double getPivotAngle() {
+        return (pivotMotor.getEncoder().getPosition() - ElevatorMap.PIVOT_HORIZONTAL_POSITION)
+                / ElevatorMap.PIVOT_GEAR_RATIO * 2 * Math.PI;
     }
 
     public void movePivot(double input) {
@@ -182,6 +252,37 @@ public class ElevatorArm extends SubsystemBase {
 
     }
 
+    /**
+     * Runs the elevator up and down between the limit switches and fits its
+     * feedforward. Start with the pivot clear of the frame.
+     */
+    public Command characterizeElevatorCommand() {
+        FeedforwardCharacterizer characterizer = new FeedforwardCharacterizer("Elevator", Mechanism.ELEVATOR,
+                elevatorMotor::setVoltage,
+                () -> elevatorMotor.getEncoder().getPosition(),
+                () -> elevatorMotor.getEncoder().getVelocity() / 60.0);
+
+        return characterizer.characterizeCommand(this,
+                CharacterizationMap.ELEVATOR_RAMP_RATE, CharacterizationMap.ELEVATOR_STEP_VOLTAGE,
+                this::getTopSwitch, this::getBottomSwitch);
+    }
+
+    /**
+     * Swings the pivot between its ground and stow positions and fits its
+     * feedforward.
+     */
+    public Command characterizePivotCommand() {
+        FeedforwardCharacterizer characterizer = new FeedforwardCharacterizer("Pivot", Mechanism.ARM,
+                pivotMotor::setVoltage,
+                this::getPivotAngle,
+                () -> pivotMotor.getEncoder().getVelocity() / 60.0 / ElevatorMap.PIVOT_GEAR_RATIO * 2 * Math.PI);
+
+        return characterizer.characterizeCommand(this,
+                CharacterizationMap.PIVOT_RAMP_RATE, CharacterizationMap.PIVOT_STEP_VOLTAGE,
+                () -> pivotMotor.getEncoder().getPosition() >= PivotPosition.STOW.getEncoderPos(),
+                () -> pivotMotor.getEncoder().getPosition() <= PivotPosition.GROUND.getEncoderPos());
+    }
+
     public boolean getTopSwitch() {
         return forwardLimit.isPressed();
     }
@@ -192,11 +293,12 @@ public class ElevatorArm extends SubsystemBase {
 
     @Override
     public void periodic() {
-        var elevatorTab = Shuffleboard.getTab("Elevator");
+        lastElevatorPosition = elevatorMotor.getEncoder().getPosition();
+        lastPivotPosition = pivotMotor.getEncoder().getPosition();
 
-        elevatorTab.add("Top Switch", getTopSwitch());
-        elevatorTab.add("Bottom Switch", getBottomSwitch());
-        elevatorTab.add("Pivot Encoder", pivotMotor.getEncoder().getPosition());
-        elevatorTab.add("Elevator Encoder", elevatorMotor.getEncoder().getPosition());
+        topSwitchEntry.setBoolean(getTopSwitch());
+        bottomSwitchEntry.setBoolean(getBottomSwitch());
+        pivotEncoderEntry.setDouble(lastPivotPosition);
+        elevatorEncoderEntry.setDouble(lastElevatorPosition);
     }
 }
\ No newline at end of file
@@ -1,11 +1,25 @@
 package frc.robot.subsystems;
 
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import com.revrobotics.CANSparkMax;
-import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.RelativeEncoder;
 
 import frc.robot.RobotMap;
+import frc.robot.RobotMap.MotorIntakeMap;
+import frc.robot.util.ThermalMonitor;
+import frc.robot.util.drivers.DeviceFactory;
+import frc.robot.util.drivers.SparkMaxFactory;
 
+/**
+ * Game piece intake. Rather than running open loop for fixed times, the
+ * intake watches motor current and velocity: a piece is seated when the
+ * rollers stall against it while intaking, after which the motor drops to a
+ * low holding current, and a piece is gone when the rollers spin freely while
+ * ejecting. Negative output pulls a piece in.
+ */
 public class MotorIntake extends SubsystemBase {
     private static MotorIntake instance;
 
@@ -15,36 +29,208 @@ public class MotorIntake extends SubsystemBase {
         return instance;
     }
 
-
+    public enum IntakeState {
+        IDLE, INTAKING, HOLDING, EJECTING
+    }
 
     private CANSparkMax intakeMotor;
+    private RelativeEncoder intakeEncoder;
     private double MOTOR_SPEED_FAST = 0.8;
     private double MOTOR_SPEED_SLOW = 0.15;
 
+    private volatile IntakeState state = IntakeState.IDLE;
+    private double speed = 0;
+    private double stateStartTime = 0;
+    /* When the current detection condition started holding, NaN while it doesn't */
+    private double detectStartTime = Double.NaN;
+    /* Whether the piece has left since ejecting started */
+    private boolean released = false;
+    /* Limit while the rollers run, lowered by the power manager when the battery is struggling */
+    private volatile int runCurrentLimit = MotorIntakeMap.RUN_CURRENT_LIMIT;
+
     private MotorIntake() {
-        intakeMotor = new CANSparkMax(RobotMap.MotorIntakeMap.MOTOR_ID, MotorType.kBrushless);
+        // The current limit isn't burned to flash, so it's part of the setup redone after a reset
+        intakeMotor = DeviceFactory.createSparkMax("Intake", RobotMap.MotorIntakeMap.MOTOR_ID,
+                SparkMaxFactory.kRollerConfiguration, spark -> spark.setSmartCurrentLimit(
+                        state == IntakeState.HOLDING ? MotorIntakeMap.HOLD_CURRENT_LIMIT : runCurrentLimit));
+        intakeEncoder = intakeMotor.getEncoder();
+        // Current limits change on state transitions, don't block the loop waiting for acks
+        intakeMotor.setCANTimeout(0);
+
+        ThermalMonitor.getInstance().register("Intake", "Intake", ThermalMonitor.MotorType.NEO,
+                intakeMotor::getOutputCurrent, intakeMotor::getMotorTemperature);
     }
 
+    /**
+     * Raw speed, kept for callers that predate the state machine. Negative
+     * speeds intake, positive speeds eject and zero stops.
+     */
     public void setSpeed(double speed) {
-        intakeMotor.set(speed);
+        if (speed < 0) {
+            intake(-speed);
+        } else if (speed > 0) {
+            eject(speed);
+        } else {
+            stop();
+        }
     }
 
     public void moveIntake(double forward, double backward) {
         if (forward > 0) {
-            intakeMotor.set(MOTOR_SPEED_FAST);
+            eject(MOTOR_SPEED_FAST);
         } else if (backward > 0) {
-            intakeMotor.set(-MOTOR_SPEED_SLOW);
+            intake(MOTOR_SPEED_SLOW);
         } else {
-            intakeMotor.set(0);
+            stop();
         }
     }
-    
+
     public void autoMoveIntake(boolean isIntake) {
         if (isIntake) {
-            intakeMotor.set(-MOTOR_SPEED_FAST);
+            intake(MOTOR_SPEED_FAST);
         } else if (!isIntake) {
-            intakeMotor.set(MOTOR_SPEED_SLOW);
+            eject(MOTOR_SPEED_SLOW);
+        }
+    }
+
+    /**
+     * Runs the rollers inward until a piece seats. Does nothing while already
+     * holding one.
+     */
+    public void intake(double speed) {
+        if (state != IntakeState.HOLDING) {
+            setState(IntakeState.INTAKING, speed);
+        }
+    }
+
+    public void eject(double speed) {
+        setState(IntakeState.EJECTING, speed);
+    }
+
+    /**
+     * Stops the rollers, but keeps holding a seated piece.
+     */
+    public void stop() {
+        if (state != IntakeState.HOLDING) {
+            setState(IntakeState.IDLE, 0);
+        }
+    }
+
+    /**
+     * Changes the limit used while the rollers run. Holding keeps its own,
+     * lower limit.
+     */
+    public void setRunCurrentLimit(double amps) {
+        runCurrentLimit = (int) amps;
+        if (state != IntakeState.HOLDING) {
+            intakeMotor.setSmartCurrentLimit(runCurrentLimit);
+        }
+    }
+
+    public IntakeState getState() {
+        return state;
+    }
+
+    public boolean hasPiece() {
+        return state == IntakeState.HOLDING;
+    }
+
+    /**
+     * Intakes until a piece is seated, leaving the intake holding it.
+     */
+    public Command intakeCommand() {
+        return new FunctionalCommand(
+                () -> intake(MOTOR_SPEED_FAST),
+                () -> {},
+                interrupted -> stop(),
+                this::hasPiece,
+                this);
+    }
+
+    /**
+     * Ejects until the piece has left the intake, or the timeout passes
+     * without the rollers ever spinning free. The rollers keep running while
+     * the driver holds eject, this only ends the command early.
+     */
+    public Command ejectCommand() {
+        return new FunctionalCommand(
+                () -> eject(MOTOR_SPEED_SLOW),
+                () -> {},
+                interrupted -> stop(),
+                () -> released,
+                this).withTimeout(MotorIntakeMap.EJECT_TIMEOUT);
+    }
+
+    private void setState(IntakeState newState, double newSpeed) {
+        if (newState == state && newSpeed == speed) {
+            return;
+        }
+        if (newState == IntakeState.HOLDING) {
+            intakeMotor.setSmartCurrentLimit(MotorIntakeMap.HOLD_CURRENT_LIMIT);
+        } else if (state == IntakeState.HOLDING) {
+            intakeMotor.setSmartCurrentLimit(runCurrentLimit);
+        }
+        if (newState != state) {
+            stateStartTime = Timer.getFPGATimestamp();
+            detectStartTime = Double.NaN;
+            released = false;
+        }
+        state = newState;
+        speed = newSpeed;
+
+        switch (state) {
+            case INTAKING:
+                intakeMotor.set(-speed);
+                break;
+            case HOLDING:
+                intakeMotor.set(-MotorIntakeMap.HOLD_OUTPUT);
+                break;
+            case EJECTING:
+                intakeMotor.set(speed);
+                break;
+            case IDLE:
+            default:
+                intakeMotor.set(0);
+        }
+    }
+
+    /**
+     * @return true once the condition has held continuously for the detect time
+     */
+    private boolean detected(boolean condition, double now) {
+        if (!condition) {
+            detectStartTime = Double.NaN;
+            return false;
+        }
+        if (Double.isNaN(detectStartTime)) {
+            detectStartTime = now;
+        }
+        return now - detectStartTime >= MotorIntakeMap.DETECT_TIME;
+    }
+
+    @Override
+    public void periodic() {
+        double now = Timer.getFPGATimestamp();
+        // Starting the rollers draws a stall-like spike, ignore it
+        if (now - stateStartTime < MotorIntakeMap.SPINUP_TIME) {
+            return;
+        }
+
+        // The same piece stalls the rollers at a far lower current at slow
+        // speeds, so thresholds are relative to what this output can reach
+        double freeSpeed = speed * MotorIntakeMap.MOTOR_FREE_SPEED;
+        double stallCurrent = Math.min(speed * MotorIntakeMap.MOTOR_STALL_CURRENT, runCurrentLimit);
+
+        double current = intakeMotor.getOutputCurrent();
+        double velocity = Math.abs(intakeEncoder.getVelocity());
+        if (state == IntakeState.INTAKING
+                && detected(current > stallCurrent * MotorIntakeMap.STALL_CURRENT_FRACTION
+                        && velocity < freeSpeed * MotorIntakeMap.STALL_VELOCITY_FRACTION, now)) {
+            setState(IntakeState.HOLDING, 0);
+        } else if (state == IntakeState.EJECTING && !released
+                && detected(current < stallCurrent * MotorIntakeMap.FREE_CURRENT_FRACTION
+                        && velocity > freeSpeed * MotorIntakeMap.FREE_VELOCITY_FRACTION, now)) {
+            released = true;
         }
     }
-    
 }
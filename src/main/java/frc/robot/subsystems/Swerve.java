@@ -4,38 +4,73 @@
 
 package frc.robot.subsystems;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
+import com.ctre.phoenix.sensors.PigeonIMU_StatusFrame;
 import com.ctre.phoenix.sensors.WPI_Pigeon2;
+import com.pathplanner.lib.PathConstraints;
 import com.pathplanner.lib.PathPlanner;
 import com.pathplanner.lib.PathPlannerTrajectory;
+import com.pathplanner.lib.PathPoint;
 import com.pathplanner.lib.commands.FollowPathWithEvents;
 import com.pathplanner.lib.commands.PPSwerveControllerCommand;
 
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.math.filter.LinearFilter;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.interpolation.TimeInterpolatableBuffer;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.networktables.GenericEntry;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
+import edu.wpi.first.wpilibj2.command.ProxyCommand;
 import edu.wpi.first.wpilibj2.command.RepeatCommand;
 import edu.wpi.first.wpilibj2.command.RunCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Robot;
+import frc.robot.RobotMap.CharacterizationMap;
 import frc.robot.RobotMap.ChargingStationMap;
 import frc.robot.RobotMap.DriveMap;
+import frc.robot.RobotMap.NavMap;
 import frc.robot.RobotMap.PPMap;
+import frc.robot.RobotMap.VisionMap;
+import frc.robot.auto.AutoEvents;
+import frc.robot.util.AllianceFlip;
+import frc.robot.util.FeedforwardCharacterizer;
+import frc.robot.util.FeedforwardCharacterizer.Mechanism;
+import frc.robot.util.LimelightCamera;
+import frc.robot.util.NavGrid;
+import frc.robot.util.SlipEstimator;
 import frc.robot.util.SwerveModule;
+import frc.robot.util.TunableGains;
+import frc.robot.util.drivers.DeviceFactory;
 
 public class Swerve extends SubsystemBase {
   private static Swerve instance;
@@ -49,13 +84,62 @@ public class Swerve extends SubsystemBase {
   private SwerveDriveOdometry odometry;
   private SwerveModule[] modules;
   private WPI_Pigeon2 gyro;
-
-  // Camera
-  PIDController speedController = new PIDController(0.0001, 0, 0);
+  /* Raw yaw as last read, restored if the Pigeon resets */
+  private volatile double lastYawDegrees = 0;
+
+  /* Module angles that point every wheel at the robot center */
+  private static final Rotation2d[] X_LOCK_ANGLES = {
+      Rotation2d.fromDegrees(45),
+      Rotation2d.fromDegrees(-45),
+      Rotation2d.fromDegrees(-45),
+      Rotation2d.fromDegrees(45)
+  };
+
+  private final double[] quaternion = new double[4];
+  private boolean lockRequested = false;
+  private double balanceTilt, balanceTiltRate;
+
+  private final SlipEstimator slipEstimator = new SlipEstimator(DriveMap.MODULE_LOCATIONS);
+
+  /* Built once at boot, searched on demand */
+  private final NavGrid navGrid = new NavGrid();
+  private double lastOdometryTime = -1;
+
+  private final TunableGains translationGains = TunableGains.pid("Path Translation",
+      PPMap.TRANSLATION_KP, PPMap.TRANSLATION_KI, PPMap.TRANSLATION_KD);
+  private final TunableGains rotationGains = TunableGains.pid("Path Rotation",
+      PPMap.ROTATION_KP, PPMap.ROTATION_KI, PPMap.ROTATION_KD);
+  private final TunableGains balanceGains = new TunableGains("Charging Station",
+      new String[] { "kP", "kD" }, new double[] { ChargingStationMap.kP, ChargingStationMap.kD });
+
+  /* Shared by every path follower, retuned live through the gains above */
+  private final PIDController xController = translationGains.newController();
+  private final PIDController yController = translationGains.newController();
+  private final PIDController thetaController = rotationGains.newController();
+
+  private final TimeInterpolatableBuffer<Pose2d> poseHistory = TimeInterpolatableBuffer
+      .createBuffer(VisionMap.POSE_HISTORY_SECONDS);
+
+  /* Distance driven since the last odometry reset, for the drift metric */
+  private double distanceDriven = 0;
+  private Pose2d lastPose = new Pose2d();
+  private double driftPerMeter = 0;
+
+  private final Field2d field = new Field2d();
+  private final AprilTagFieldLayout tagLayout = loadTagLayout();
+  private final GenericEntry[] canCoderEntries = new GenericEntry[4];
+  private final GenericEntry[] integratedEntries = new GenericEntry[4];
+  private final GenericEntry[] velocityEntries = new GenericEntry[4];
+  private final GenericEntry[] positionEntries = new GenericEntry[4];
+  private final GenericEntry distanceEntry, driftEntry, pathSearchEntry;
 
   private Swerve() {
-    gyro = new WPI_Pigeon2(DriveMap.PIGEON_ID);
-    gyro.configFactoryDefault();
+    gyro = DeviceFactory.createPigeon2("Pigeon", DriveMap.PIGEON_ID, pigeon -> {
+      // Pin the yaw frame period so its age is known, see getLatencyCompensatedYaw()
+      pigeon.setStatusFramePeriod(PigeonIMU_StatusFrame.CondStatus_9_SixDeg_YPR, DriveMap.PIGEON_YAW_FRAME_PERIOD_MS, 0);
+      // A reset would otherwise zero the heading mid-match
+      pigeon.setYaw(lastYawDegrees);
+    });
     zeroGyro();
 
     modules = new SwerveModule[] {
@@ -65,7 +149,81 @@ public class Swerve extends SubsystemBase {
         new SwerveModule(3, DriveMap.BackRight.CONSTANTS)
     };
 
-    odometry = new SwerveDriveOdometry(DriveMap.KINEMATICS, getYaw(), getModulePositions());
+    translationGains.onChange(gains -> {
+      gains.apply(xController);
+      gains.apply(yController);
+    });
+    rotationGains.onChange(gains -> gains.apply(thetaController));
+
+    TunableGains.pid("Drive", DriveMap.DRIVE_KP, DriveMap.DRIVE_KI, DriveMap.DRIVE_KD)
+        .onChange(gains -> {
+          for (SwerveModule mod : modules) {
+            mod.configDrivePID(gains);
+          }
+        });
+    TunableGains.pid("Rotator", DriveMap.ROTATOR_KP, DriveMap.ROTATOR_KI, DriveMap.ROTATOR_KD)
+        .onChange(gains -> {
+          for (SwerveModule mod : modules) {
+            mod.configRotatorPID(gains);
+          }
+        });
+
+    odometry = new SwerveDriveOdometry(DriveMap.KINEMATICS, getLatencyCompensatedYaw(),
+        slipEstimator.correctPositions(getModulePositions(), 0));
+
+    ShuffleboardTab swerveTab = Shuffleboard.getTab("Swerve");
+    for (SwerveModule mod : modules) {
+      int i = mod.moduleNumber;
+      canCoderEntries[i] = swerveTab.add("Mod " + i + " Cancoder", 0.0).getEntry();
+      integratedEntries[i] = swerveTab.add("Mod " + i + " Integrated", 0.0).getEntry();
+      velocityEntries[i] = swerveTab.add("Mod " + i + " Velocity", 0.0).getEntry();
+      positionEntries[i] = swerveTab.add("module " + i + " position", 0.0).getEntry();
+    }
+    swerveTab.add("Pose", field);
+    swerveTab.add("x-input PID Controller", xController);
+    swerveTab.add("y-input PID Controller", yController);
+    swerveTab.add("rot PID Controller", thetaController);
+    swerveTab.add("Calibrate Offsets", calibrateOffsetsCommand());
+    swerveTab.add("Characterize Drive", characterizeDriveCommand());
+    distanceEntry = swerveTab.add("Distance Driven", 0.0).getEntry();
+    driftEntry = swerveTab.add("Drift Per Meter", 0.0).getEntry();
+    pathSearchEntry = swerveTab.add("Path Search ms", 0.0).getEntry();
+  }
+
+  /**
+   * Splits a supply current budget evenly between the drive motors. The peak
+   * limit scales with the budget, the continuous limit never goes above its
+   * usual value.
+   *
+   * @param amps Total for all four drive motors
+   */
+  public void setDriveCurrentLimit(double amps) {
+    double perModule = amps / modules.length;
+    SupplyCurrentLimitConfiguration limit = new SupplyCurrentLimitConfiguration(DriveMap.LIMIT_DRIVE_CURRENT,
+        Math.min(DriveMap.DRIVE_CONTINUOS_CURRENT_LIMIT, perModule), perModule,
+        DriveMap.DRIVE_PEAK_CURRENT_DURATION);
+    // A Falcon that resets mid-match gets the current budget back, not the boot config
+    Robot.ctreConfigs.swerveDriveFXConfig.supplyCurrLimit = limit;
+    for (SwerveModule mod : modules) {
+      mod.setDriveCurrentLimit(limit);
+    }
+  }
+
+  /**
+   * Steer counterpart of {@link #setDriveCurrentLimit(double)}, cut back only
+   * when the steer motors run hot or the battery is nearly out.
+   *
+   * @param amps Total for all four steer motors
+   */
+  public void setSteerCurrentLimit(double amps) {
+    double perModule = amps / modules.length;
+    SupplyCurrentLimitConfiguration limit = new SupplyCurrentLimitConfiguration(DriveMap.LIMIT_ROTATOR_CURRENT,
+        Math.min(DriveMap.ROTATOR_CONTINUOS_CURRENT_LIMIT, perModule), perModule,
+        DriveMap.ROTATOR_PEAK_CURRENT_DURATION);
+    Robot.ctreConfigs.swerveAngleFXConfig.supplyCurrLimit = limit;
+    for (SwerveModule mod : modules) {
+      mod.setRotatorCurrentLimit(limit);
+    }
   }
 
   public void resetModulesToAbsolute() {
@@ -74,17 +232,126 @@ public class Swerve extends SubsystemBase {
     }
   }
 
+  /**
+   * Drives straight forward and back with every module pointed ahead and fits
+   * the drive feedforward. Each test stops once the robot is
+   * {@link CharacterizationMap#DRIVE_MAX_TRAVEL} from where the routine
+   * started, so start in the middle of twice that much clear floor.
+   */
+  public Command characterizeDriveCommand() {
+    FeedforwardCharacterizer characterizer = new FeedforwardCharacterizer("Drive", Mechanism.SIMPLE,
+        volts -> {
+          lockRequested = false;
+          for (SwerveModule mod : modules) {
+            mod.setDriveVoltage(volts);
+          }
+        },
+        this::getAverageDriveDistance,
+        () -> {
+          double speed = 0;
+          for (SwerveModule mod : modules) {
+            speed += mod.getState().speedMetersPerSecond;
+          }
+          return speed / modules.length;
+        });
+
+    double[] start = new double[1];
+    return new InstantCommand(() -> start[0] = getAverageDriveDistance())
+        .andThen(characterizer.characterizeCommand(this,
+            CharacterizationMap.DRIVE_RAMP_RATE, CharacterizationMap.DRIVE_STEP_VOLTAGE,
+            () -> getAverageDriveDistance() - start[0] >= CharacterizationMap.DRIVE_MAX_TRAVEL,
+            () -> getAverageDriveDistance() - start[0] <= -CharacterizationMap.DRIVE_MAX_TRAVEL));
+  }
+
+  private double getAverageDriveDistance() {
+    double distance = 0;
+    for (SwerveModule mod : modules) {
+      distance += mod.getPosition().distanceMeters;
+    }
+    return distance / modules.length;
+  }
+
+  /**
+   * Saves the current CANCoder readings as the module offsets. Point every
+   * wheel straight forward, bevel gears to the same side, before running.
+   */
+  public Command calibrateOffsetsCommand() {
+    return new InstantCommand(() -> {
+      for (SwerveModule mod : modules) {
+        mod.calibrateOffset();
+      }
+    }, this).ignoringDisable(true);
+  }
+
   public void drive(ChassisSpeeds speeds, boolean isOpenLoop) {
+    if (lockRequested) {
+      if (isStopped(speeds)) {
+        lockModules();
+        return;
+      }
+      // Driver input returned, give the wheels back
+      lockRequested = false;
+    }
+
     SwerveModuleState[] swerveModuleStates = DriveMap.KINEMATICS.toSwerveModuleStates(speeds);
     SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, DriveMap.MAX_VELOCITY);
+    limitSlippingModules(swerveModuleStates);
 
     for (SwerveModule mod : modules) {
       mod.setDesiredState(swerveModuleStates[mod.moduleNumber], isOpenLoop);
     }
   }
 
+  private void limitSlippingModules(SwerveModuleState[] states) {
+    if (!DriveMap.TRACTION_CONTROL) {
+      return;
+    }
+    for (int i = 0; i < states.length; i++) {
+      states[i].speedMetersPerSecond = slipEstimator.limitSpeed(i, states[i].speedMetersPerSecond);
+    }
+  }
+
+  public boolean isModuleSlipping(int module) {
+    return slipEstimator.isSlipping(module);
+  }
+
+  /**
+   * Turns the modules into an X and holds the drive wheels in place so the
+   * robot resists being pushed. Stays locked while {@link #drive} is asked for
+   * zero speed and releases on the first non-zero request.
+   */
+  public void lock() {
+    lockRequested = true;
+    lockModules();
+  }
+
+  public boolean isLocked() {
+    return lockRequested;
+  }
+
+  private void lockModules() {
+    for (SwerveModule mod : modules) {
+      mod.lock(X_LOCK_ANGLES[mod.moduleNumber]);
+    }
+  }
+
+  private static boolean isStopped(ChassisSpeeds speeds) {
+    return Math.abs(speeds.vxMetersPerSecond) < DriveMap.MAX_VELOCITY * 0.01
+        && Math.abs(speeds.vyMetersPerSecond) < DriveMap.MAX_VELOCITY * 0.01
+        && Math.abs(speeds.omegaRadiansPerSecond) < DriveMap.MAX_ANGULAR_VELOCITY * 0.01;
+  }
+
   public Command driveCommand(Supplier<ChassisSpeeds> chassisSpeeds) {
-    return new RepeatCommand(new RunCommand(() -> this.drive(chassisSpeeds.get(), true), this));
+    return driveCommand(chassisSpeeds, true);
+  }
+
+  public Command driveCommand(Supplier<ChassisSpeeds> chassisSpeeds, boolean isOpenLoop) {
+    return driveCommand(chassisSpeeds, () -> isOpenLoop);
+  }
+
+  public Command driveCommand(Supplier<ChassisSpeeds> chassisSpeeds, BooleanSupplier isOpenLoop) {
+    return new RepeatCommand(
+        new RunCommand(() -> this.drive(chassisSpeeds.get(), isOpenLoop.getAsBoolean()), this));
   }
 
   public Pose2d transform3dToPose2d(Transform3d targetPosition) {
@@ -112,7 +379,9 @@ public class Swerve extends SubsystemBase {
 
   /* Used by SwerveControllerCommand in Auto */
   public void setModuleStates(SwerveModuleState[] desiredStates) {
+    lockRequested = false;
     SwerveDriveKinematics.desaturateWheelSpeeds(desiredStates, DriveMap.MAX_VELOCITY);
+    limitSlippingModules(desiredStates);
 
     for (SwerveModule mod : modules) {
       mod.setDesiredState(desiredStates[mod.moduleNumber], false);
@@ -123,8 +392,51 @@ public class Swerve extends SubsystemBase {
     return odometry.getPoseMeters();
   }
 
+  /**
+   * @param timestamp FPGA time in seconds
+   * @return Odometry pose at that time, or the current pose if it is outside
+   *         the recorded history
+   */
+  public Pose2d getPoseAt(double timestamp) {
+    Pose2d pose = poseHistory.getSample(timestamp);
+    return (pose == null) ? getPose() : pose;
+  }
+
+  public ChassisSpeeds getFieldRelativeSpeeds() {
+    ChassisSpeeds robotRelative = DriveMap.KINEMATICS.toChassisSpeeds(getModuleStates());
+    Translation2d velocity = new Translation2d(robotRelative.vxMetersPerSecond, robotRelative.vyMetersPerSecond)
+        .rotateBy(getPose().getRotation());
+    return new ChassisSpeeds(velocity.getX(), velocity.getY(), robotRelative.omegaRadiansPerSecond);
+  }
+
   public void resetOdometry(Pose2d pose) {
-    odometry.resetPosition(getYaw(), getModulePositions(), pose);
+    odometry.resetPosition(getLatencyCompensatedYaw(), slipEstimator.getCorrectedPositions(), pose);
+    lastPose = pose;
+    distanceDriven = 0;
+    driftPerMeter = 0;
+  }
+
+  /**
+   * Compares odometry against an independent pose measurement, such as a
+   * Limelight botpose, and updates the drift per meter metric.
+   *
+   * @param reference Measured robot pose
+   * @param timestamp FPGA time in seconds the measurement was taken
+   */
+  public void addReferencePose(Pose2d reference, double timestamp) {
+    if (distanceDriven < DriveMap.DRIFT_MIN_DISTANCE) {
+      return;
+    }
+    double error = getPoseAt(timestamp).getTranslation().getDistance(reference.getTranslation());
+    driftPerMeter = error / distanceDriven;
+  }
+
+  /**
+   * @return Meters of odometry error per meter driven at the last reference
+   *         measurement
+   */
+  public double getDriftPerMeter() {
+    return driftPerMeter;
   }
 
   public SwerveModuleState[] getModuleStates() {
@@ -146,12 +458,30 @@ public class Swerve extends SubsystemBase {
 
   public void zeroGyro() {
     gyro.setYaw(0);
+    lastYawDegrees = 0;
   }
 
   public Rotation2d getYaw() {
+    lastYawDegrees = gyro.getYaw();
     return (DriveMap.INVERT_GYRO)
-        ? Rotation2d.fromDegrees(360 - gyro.getYaw())
-        : Rotation2d.fromDegrees(gyro.getYaw());
+        ? Rotation2d.fromDegrees(360 - lastYawDegrees)
+        : Rotation2d.fromDegrees(lastYawDegrees);
+  }
+
+  /**
+   * @return Yaw rate in degrees per second, counter-clockwise positive
+   */
+  public double getYawRate() {
+    // WPI_Pigeon2 reports rate clockwise positive
+    return (DriveMap.INVERT_GYRO) ? gyro.getRate() : -gyro.getRate();
+  }
+
+  /**
+   * @return Yaw advanced by the current yaw rate over the age of the Pigeon's
+   *         YPR frame, so heading isn't a frame behind while turning
+   */
+  public Rotation2d getLatencyCompensatedYaw() {
+    return getYaw().plus(Rotation2d.fromDegrees(getYawRate() * DriveMap.PIGEON_YAW_AGE));
   }
 
   public Command compensateDrift(double yawGoal) {
@@ -181,78 +511,279 @@ public class Swerve extends SubsystemBase {
   public Command followTrajectoryCommand(String path, HashMap<String, Command> eventMap,
       boolean isFirstPath) {
     PathPlannerTrajectory traj = PathPlanner.loadPath(path, PPMap.MAX_VELOCITY, PPMap.MAX_ACCELERATION);
-    return new FollowPathWithEvents(
-        followTrajectoryCommand(traj, isFirstPath),
-        traj.getMarkers(),
-        eventMap);
+    return new SequentialCommandGroup(
+        AutoEvents.stopEventCommand(traj.getStartStopEvent(), eventMap),
+        followTrajectoryWithEventsCommand(traj, eventMap, isFirstPath),
+        AutoEvents.stopEventCommand(traj.getEndStopEvent(), eventMap));
+  }
+
+  public Command followTrajectoryCommand(String path, boolean isFirstPath) {
+    return followTrajectoryCommand(PathPlanner.loadPath(path, 2, 2), isFirstPath);
+  }
+
+  /**
+   * Follows every path of a PathPlanner path group back to back. Only the
+   * first path resets odometry, and each later path starts from wherever the
+   * previous one left the robot. Stop events run at each stop point, markers
+   * run while driving.
+   */
+  public Command followPathGroupCommand(String group, HashMap<String, Command> eventMap) {
+    List<PathPlannerTrajectory> paths = PathPlanner.loadPathGroup(group,
+        new PathConstraints(PPMap.MAX_VELOCITY, PPMap.MAX_ACCELERATION));
+
+    SequentialCommandGroup command = new SequentialCommandGroup();
+    for (int i = 0; i < paths.size(); i++) {
+      PathPlannerTrajectory traj = paths.get(i);
+      command.addCommands(
+          AutoEvents.stopEventCommand(traj.getStartStopEvent(), eventMap),
+          followTrajectoryWithEventsCommand(traj, eventMap, i == 0));
+    }
+    command.addCommands(AutoEvents.stopEventCommand(paths.get(paths.size() - 1).getEndStopEvent(), eventMap));
+    return command;
   }
 
-  private SequentialCommandGroup followTrajectoryCommand(PathPlannerTrajectory traj,
+  private Command followTrajectoryWithEventsCommand(PathPlannerTrajectory traj, HashMap<String, Command> eventMap,
       boolean isFirstPath) {
+    // Markers are timed from when the wrapped command starts, so any bridge
+    // has to finish before it or they'd fire early by the bridge's length
+    return startTrajectoryCommand(traj, isFirstPath).andThen(new FollowPathWithEvents(
+        drawnPathControllerCommand(traj),
+        traj.getMarkers(),
+        eventMap));
+  }
 
-    // Create PIDControllers for each movement (and set default values)
-    PIDController xPID = new PIDController(5.0, 0.0, 0.0);
-    PIDController yPID = new PIDController(5.0, 0.0, 0.0);
-    PIDController thetaPID = new PIDController(1.0, 0.0, 0.0);
+  /**
+   * Path following engine. Every path runs on the same holonomic controller,
+   * so tuning applies everywhere and the controller state carries over between
+   * chained paths.
+   *
+   * Paths are drawn for the blue alliance. PathPlannerLib transforms them for
+   * the alliance reported by the driver station when they start.
+   *
+   * @param isFirstPath Resets odometry to the path start. Otherwise, if the
+   *                    robot isn't at the path start, a short path from the
+   *                    current pose and velocity joins it first.
+   */
+  public Command followTrajectoryCommand(PathPlannerTrajectory traj, boolean isFirstPath) {
+    return startTrajectoryCommand(traj, isFirstPath).andThen(drawnPathControllerCommand(traj));
+  }
 
-    var swerveTab = Shuffleboard.getTab("Swerve");
+  /**
+   * Gets the robot onto the start of a path, see
+   * {@link #followTrajectoryCommand(PathPlannerTrajectory, boolean)}.
+   */
+  private Command startTrajectoryCommand(PathPlannerTrajectory traj, boolean isFirstPath) {
+    if (isFirstPath) {
+      return new InstantCommand(() -> resetOdometry(AllianceFlip.convertOrigin(
+          PathPlannerTrajectory.transformTrajectoryForAlliance(traj, DriverStation.getAlliance())
+              .getInitialHolonomicPose())));
+    }
+    return warmStartCommand(traj);
+  }
 
-    swerveTab.add("x-input PID Controller", xPID);
-    swerveTab.add("y-input PID Controller", yPID);
-    swerveTab.add("rot PID Controller", thetaPID);
+  /**
+   * Follows a path generated in the blue origin.
+   */
+  private Command pathControllerCommand(PathPlannerTrajectory traj) {
+    return new PPSwerveControllerCommand(
+        traj, this::getPose, xController, yController, thetaController,
+        speeds -> drive(speeds, true), this); // KEEP IT OPEN LOOP
+  }
 
-    return new SequentialCommandGroup(
-        new InstantCommand(
-            () -> {
-              // Reset odometry for the first path you run during auto
-              if (isFirstPath) {
-                odometry.resetPosition(
-                    getYaw(), getModulePositions(), traj.getInitialHolonomicPose());
-              }
-            }),
-        new PPSwerveControllerCommand(
-            traj, this::getPose, xPID, yPID, thetaPID, speeds -> drive(speeds, true), this));// KEEP IT OPEN LOOP
-  }
-
-  public SequentialCommandGroup followTrajectoryCommand(String path, boolean isFirstPath) {
-    PathPlannerTrajectory traj = PathPlanner.loadPath(path, 2, 2);
-    PIDController xPID = new PIDController(5.0, 0.0, 0.0);
-    PIDController yPID = new PIDController(5.0, 0.0, 0.0);
-    PIDController thetaPID = new PIDController(1.0, 0.0, 0.0);
+  /**
+   * Follows a path drawn in PathPlanner, transformed for the alliance when it
+   * starts. PathPlannerLib puts red paths in the red origin, so the pose is
+   * handed over in the same origin.
+   */
+  private Command drawnPathControllerCommand(PathPlannerTrajectory traj) {
+    return new PPSwerveControllerCommand(
+        traj, () -> AllianceFlip.convertOrigin(getPose()), xController, yController, thetaController,
+        speeds -> drive(speeds, true), true, this); // KEEP IT OPEN LOOP
+  }
 
-    return new SequentialCommandGroup(
-        new InstantCommand(
-            () -> {
-              // Reset odometry for the first path you rubn during auto
-              if (isFirstPath) {
-                odometry.resetPosition(
-                    getYaw(), getModulePositions(), traj.getInitialHolonomicPose());
-              }
-            }),
-        new PPSwerveControllerCommand(traj, this::getPose, xPID, yPID, thetaPID, speeds -> drive(speeds, true), this));
+  private Command warmStartCommand(PathPlannerTrajectory traj) {
+    return new ProxyCommand(() -> {
+      PathPlannerTrajectory oriented = PathPlannerTrajectory.transformTrajectoryForAlliance(traj,
+          DriverStation.getAlliance());
+      // Back into the blue origin for the bridge
+      Pose2d start = AllianceFlip.convertOrigin(oriented.getInitialHolonomicPose());
+      Rotation2d heading = AllianceFlip.convertOrigin(oriented.getInitialPose()).getRotation();
+      Pose2d pose = getPose();
+      Translation2d toStart = start.getTranslation().minus(pose.getTranslation());
+      if (toStart.getNorm() < PPMap.WARM_START_TOLERANCE) {
+        return new InstantCommand();
+      }
+
+      PathPlannerTrajectory bridge = PathPlanner.generatePath(
+          new PathConstraints(PPMap.MAX_VELOCITY, PPMap.MAX_ACCELERATION),
+          PathPoint.fromCurrentHolonomicState(pose, getFieldRelativeSpeeds()),
+          new PathPoint(start.getTranslation(), heading, start.getRotation(),
+              oriented.getInitialState().velocityMetersPerSecond));
+      return pathControllerCommand(bridge);
+    });
+  }
+
+  /**
+   * @return The 2023 tag layout, blue origin like botpose_wpiblue, or null if
+   *         it couldn't be loaded
+   */
+  private static AprilTagFieldLayout loadTagLayout() {
+    try {
+      return AprilTagFieldLayout.loadFromResource(AprilTagFields.k2023ChargedUp.m_resourceFile);
+    } catch (IOException e) {
+      DriverStation.reportError("Could not load AprilTag layout, node alignment is disabled: " + e.getMessage(),
+          false);
+      return null;
+    }
+  }
+
+  /**
+   * Drives to a scoring node found by the camera. The goal is placed off the
+   * face of the seen tag using its pose in the field layout, then expressed
+   * relative to the camera's blue origin botpose for the same frame. Applying
+   * that to the odometry pose from the moment the frame was captured cancels
+   * odometry drift, before a short path is generated from the current pose
+   * and velocity.
+   *
+   * @param camera   Camera looking at the node's tag
+   * @param standoff Meters between the tag face and the robot center at the
+   *                 end of the path
+   */
+  public Command alignToNodeCommand(LimelightCamera camera, double standoff) {
+    return new ProxyCommand(() -> {
+      double[] botPose = camera.getBotPose_wpiBlue();
+      Optional<Pose3d> tagPose = tagLayout == null
+          ? Optional.empty()
+          : tagLayout.getTagPose(camera.getFiducialId());
+      if (!camera.getHasTarget() || botPose.length < 6 || tagPose.isEmpty()) {
+        return new InstantCommand();
+      }
+
+      Pose2d visionPose = new Pose2d(botPose[0], botPose[1], Rotation2d.fromDegrees(botPose[5]));
+      // Tags face out along their X axis, stand off the face looking back at it
+      Pose2d fieldGoal = tagPose.get().toPose2d().transformBy(
+          new Transform2d(new Translation2d(standoff, 0), Rotation2d.fromDegrees(180)));
+      Pose2d goal = getPoseAt(camera.getFrameTimestamp()).transformBy(fieldGoal.minus(visionPose));
+
+      Pose2d start = getPose();
+      Translation2d toGoal = goal.getTranslation().minus(start.getTranslation());
+      if (toGoal.getNorm() < 0.02) {
+        return new InstantCommand();
+      }
+      PathPlannerTrajectory traj = PathPlanner.generatePath(
+          new PathConstraints(VisionMap.ALIGN_MAX_VELOCITY, VisionMap.ALIGN_MAX_ACCELERATION),
+          PathPoint.fromCurrentHolonomicState(start, getFieldRelativeSpeeds()),
+          new PathPoint(goal.getTranslation(), toGoal.getAngle(), goal.getRotation()));
+
+      // Give up only once the path has had time to finish
+      return pathControllerCommand(traj).withTimeout(traj.getTotalTimeSeconds() + VisionMap.ALIGN_TIMEOUT_MARGIN);
+    });
+  }
+
+  /**
+   * Drives to any field pose, planning around the grids, charging stations
+   * and barriers. The path is searched when the command starts and its
+   * corners are joined into a smooth trajectory starting from the current
+   * pose and velocity. If that trajectory cuts through an obstacle the legs
+   * are split and it's generated again. Does nothing if the goal can't be
+   * reached.
+   *
+   * @param goal Blue origin field pose, see {@link AllianceFlip#flip(Pose2d)}
+   */
+  public Command driveToPoseCommand(Supplier<Pose2d> goal) {
+    return new ProxyCommand(() -> {
+      Pose2d start = getPose();
+      Pose2d end = goal.get();
+      List<Translation2d> corners = navGrid.findPath(start.getTranslation(), end.getTranslation());
+      pathSearchEntry.setDouble(navGrid.getLastSearchTime());
+      if (corners.isEmpty() || start.getTranslation().getDistance(end.getTranslation()) < 0.02) {
+        return new InstantCommand();
+      }
+
+      PathPlannerTrajectory traj = navTrajectory(start, end, corners);
+      for (int i = 0; i < NavMap.MAX_SUBDIVISIONS && !navGrid.isClear(traj); i++) {
+        corners = NavGrid.subdivide(corners);
+        traj = navTrajectory(start, end, corners);
+      }
+      field.getObject("Planned Path").setTrajectory(traj);
+      if (!navGrid.isClear(traj)) {
+        DriverStation.reportWarning("Planned path to " + end + " cuts through an obstacle, not driving", false);
+        return new InstantCommand();
+      }
+      return pathControllerCommand(traj);
+    });
+  }
+
+  private PathPlannerTrajectory navTrajectory(Pose2d start, Pose2d end, List<Translation2d> corners) {
+    List<PathPoint> points = new ArrayList<>();
+    points.add(PathPoint.fromCurrentHolonomicState(start, getFieldRelativeSpeeds()));
+    // Each corner is passed heading along the bisector of its two legs,
+    // turning toward the goal heading along the way
+    for (int i = 1; i < corners.size(); i++) {
+      Translation2d in = corners.get(i).minus(corners.get(i - 1));
+      Translation2d heading = i < corners.size() - 1
+          ? in.div(in.getNorm()).plus(corners.get(i + 1).minus(corners.get(i)).div(
+              corners.get(i + 1).getDistance(corners.get(i))))
+          : in;
+      points.add(new PathPoint(corners.get(i), heading.getAngle(), end.getRotation()));
+    }
+
+    return PathPlanner.generatePath(
+        new PathConstraints(NavMap.MAX_VELOCITY, NavMap.MAX_ACCELERATION), points);
+  }
+
+  /**
+   * Reads the Pigeon quaternion once and projects world up into the robot
+   * frame.
+   *
+   * @return Uphill direction in the robot frame, scaled to the tilt in degrees
+   */
+  public Translation2d getTiltVector() {
+    gyro.get6dQuaternion(quaternion);
+    double w = quaternion[0], x = quaternion[1], y = quaternion[2], z = quaternion[3];
+
+    // Bottom row of the robot-to-field rotation: field +Z seen from the robot
+    double upX = 2 * (x * z - w * y);
+    double upY = 2 * (y * z + w * x);
+    double upZ = 1 - 2 * (x * x + y * y);
+
+    double horizontal = Math.hypot(upX, upY);
+    if (horizontal < 1e-9) {
+      return new Translation2d();
+    }
+    double tilt = Math.toDegrees(Math.atan2(horizontal, upZ));
+    return new Translation2d(upX / horizontal * tilt, upY / horizontal * tilt);
   }
 
   public Command chargingStationCommand() {
-    PIDController pid = new PIDController(ChargingStationMap.kP, ChargingStationMap.kI, ChargingStationMap.kD);
-    pid.setTolerance(0.2);
+    LinearFilter tiltRate = LinearFilter.backwardFiniteDifference(1, 2, 0.02);
+    Debouncer level = new Debouncer(ChargingStationMap.LEVEL_TIME);
 
     return new FunctionalCommand(
         () -> {
-          // Init
+          tiltRate.reset();
+          level.calculate(false);
         },
         () -> {
-          if (pid.calculate(gyro.getRoll() + gyro.getPitch()) > ChargingStationMap.MAX_VELOCITY) {
-            this.drive(new ChassisSpeeds(-ChargingStationMap.MAX_VELOCITY, .0, 0), true);
-          } else {
-            this.drive(new ChassisSpeeds(-pid.calculate(gyro.getRoll() + gyro.getPitch(), 0.0), 0, 0), true);
-          }
-
+          Translation2d tiltVector = getTiltVector();
+          balanceTilt = tiltVector.getNorm();
+          balanceTiltRate = tiltRate.calculate(balanceTilt);
+
+          // Drive uphill, slowing as the tilt falls so we brake before the station tips
+          double speed = MathUtil.clamp(
+              balanceGains.kP() * balanceTilt + balanceGains.kD() * balanceTiltRate,
+              0, ChargingStationMap.MAX_VELOCITY);
+          Translation2d velocity = (balanceTilt < ChargingStationMap.TILT_TOLERANCE)
+              ? new Translation2d()
+              : tiltVector.times(speed / balanceTilt);
+          this.drive(new ChassisSpeeds(velocity.getX(), velocity.getY(), 0), true);
         },
         interrupted -> {
-          pid.close();
+          lock();
         },
         () -> {
-          return pid.atSetpoint();
+          boolean tipping = balanceTiltRate < -ChargingStationMap.TIPPING_RATE;
+          return level.calculate(balanceTilt < ChargingStationMap.TILT_TOLERANCE) || tipping;
         },
         this);
   }
@@ -260,22 +791,33 @@ public class Swerve extends SubsystemBase {
   @Override
   public void periodic() {
     if (DriverStation.isDisabled()) {
-      resetModulesToAbsolute();
+      for (SwerveModule mod : modules) {
+        mod.resetToAbsoluteIfDiverged();
+      }
     }
 
-    var swerveTab = Shuffleboard.getTab("Swerve");
+    double now = Timer.getFPGATimestamp();
+    double dt = (lastOdometryTime < 0) ? 0 : now - lastOdometryTime;
+    lastOdometryTime = now;
+
+    slipEstimator.update(getModuleStates(), Math.toRadians(getYawRate()));
+    Pose2d pose = odometry.update(getLatencyCompensatedYaw(),
+        slipEstimator.correctPositions(getModulePositions(), dt));
+    poseHistory.addSample(now, pose);
+
+    distanceDriven += pose.getTranslation().getDistance(lastPose.getTranslation());
+    lastPose = pose;
 
-    odometry.update(getYaw(), getModulePositions());
     for (SwerveModule mod : modules) {
-      swerveTab.add("Mod " + mod.moduleNumber + " Cancoder", mod.getCanCoder().getDegrees());
-      swerveTab.add("Mod " + mod.moduleNumber + " Integrated", mod.getPosition().angle.getDegrees());
-      swerveTab.add("Mod " + mod.moduleNumber + " Velocity", mod.getState().speedMetersPerSecond);
+      int i = mod.moduleNumber;
+      SwerveModulePosition position = mod.getPosition();
+      canCoderEntries[i].setDouble(mod.getCanCoder().getDegrees());
+      integratedEntries[i].setDouble(position.angle.getDegrees());
+      velocityEntries[i].setDouble(mod.getState().speedMetersPerSecond);
+      positionEntries[i].setDouble(position.distanceMeters);
     }
-
-    swerveTab.add("Pose", getPose());
-    swerveTab.add("module 0 position", getModulePositions()[0].distanceMeters);
-    swerveTab.add("module 1 position", getModulePositions()[1].distanceMeters);
-    swerveTab.add("module 2 position", getModulePositions()[2].distanceMeters);
-    swerveTab.add("module 3 position", getModulePositions()[3].distanceMeters);
+    field.setRobotPose(pose);
+    distanceEntry.setDouble(distanceDriven);
+    driftEntry.setDouble(driftPerMeter);
   }
 }
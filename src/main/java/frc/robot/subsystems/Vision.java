@@ -1,62 +1,129 @@
 package frc.robot.subsystems;
 
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.networktables.GenericEntry;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Config;
+import frc.robot.RobotMap.VisionMap;
+import frc.robot.util.LimelightCamera;
+import frc.robot.util.LimelightResultsReader;
 
 public class Vision extends SubsystemBase {
-    private Vision instance;
+    private static Vision instance;
 
-    public Vision getInstance() {
+    public static Vision getInstance() {
         if (instance == null) {
             instance = new Vision();
         }
         return instance;
     }
 
-    private NetworkTable networkTable;
-    private NetworkTableEntry tv, tx, ty, ta;
-    private boolean hasTarget = false;
-    private double currentX, currentY, currentA;
+    private LimelightCamera[] cameras;
+    private LimelightResultsReader[] resultsReaders;
+    private long[] lastResults;
+    private final LimelightResultsReader.Snapshot results = new LimelightResultsReader.Snapshot();
+    private GenericEntry[] xEntries, yEntries, areaEntries;
 
     private Vision() {
-        networkTable = NetworkTableInstance.getDefault().getTable("limelight");
-        tv = networkTable.getEntry("tv"); // Wether limelight detects any valid targets 0, 1
-        tx = networkTable.getEntry("tx"); // Horizontal offset from crosshair to target (-27, 27)
-        ty = networkTable.getEntry("ty"); // Vertical offset from crosshair to target (-20.5, 20.5)
-        ta = networkTable.getEntry("ta"); // Target area (Between 0% and 100%)
+        cameras = new LimelightCamera[VisionMap.CAMERA_NAMES.length];
+        resultsReaders = new LimelightResultsReader[cameras.length];
+        lastResults = new long[cameras.length];
+        xEntries = new GenericEntry[cameras.length];
+        yEntries = new GenericEntry[cameras.length];
+        areaEntries = new GenericEntry[cameras.length];
 
+        var visionTab = Shuffleboard.getTab("Vision");
+        for (int i = 0; i < cameras.length; i++) {
+            cameras[i] = new LimelightCamera(VisionMap.CAMERA_NAMES[i]);
+            String name = cameras[i].getName();
+            xEntries[i] = visionTab.add(name + " X", 0.0).getEntry();
+            yEntries[i] = visionTab.add(name + " Y", 0.0).getEntry();
+            areaEntries[i] = visionTab.add(name + " Area", 0.0).getEntry();
+
+            if (VisionMap.PARSE_JSON_RESULTS) {
+                resultsReaders[i] = new LimelightResultsReader(name);
+                resultsReaders[i].start(VisionMap.JSON_PARSE_PERIOD);
+            }
+        }
+    }
+
+    public LimelightCamera getCamera(int index) {
+        return cameras[index];
+    }
+
+    /**
+     * Copies the latest parsed JSON results of a camera.
+     *
+     * @return Results sequence number, or -1 if JSON parsing is disabled
+     */
+    public long getResults(int index, LimelightResultsReader.Snapshot out) {
+        if (resultsReaders[index] == null) {
+            return -1;
+        }
+        return resultsReaders[index].getLatest(out);
+    }
+
+    public int getCameraCount() {
+        return cameras.length;
     }
 
     public boolean getHasTarget() {
-        return hasTarget;
+        return cameras[0].getHasTarget();
     }
 
     public double getHorizontalOffset() {
-        return currentX;
+        return cameras[0].getHorizontalOffset();
     }
 
     public double getVerticalOffset() {
-        return currentY;
+        return cameras[0].getVerticalOffset();
     }
 
     public double getCurrentArea() {
-        return currentA;
+        return cameras[0].getCurrentArea();
     }
 
     @Override
     public void periodic() {
-        hasTarget = (tv.getDouble(0.0) < 1.0) ? false : true;
-        currentX = tx.getDouble(0.0);
-        currentY = ty.getDouble(0.0);
-        currentA = ta.getDouble(0.0);
+        for (int i = 0; i < cameras.length; i++) {
+            if (resultsReaders[i] != null) {
+                addParsedReference(i);
+            }
 
-        var visionTab = Shuffleboard.getTab("Vision");
+            // Nothing to publish until the camera sends a new frame
+            if (!cameras[i].update()) {
+                continue;
+            }
+            xEntries[i].setDouble(cameras[i].getHorizontalOffset());
+            yEntries[i].setDouble(cameras[i].getVerticalOffset());
+            areaEntries[i].setDouble(cameras[i].getCurrentArea());
+
+            // Botpose is independent of wheel odometry, so it doubles as a drift reference
+            double[] botPose = cameras[i].getBotPose_wpiBlue();
+            if (resultsReaders[i] == null && Config.Subsystems.SWERVE_ENABLED && cameras[i].getHasTarget()
+                    && botPose.length >= 6) {
+                Pose2d reference = new Pose2d(botPose[0], botPose[1], Rotation2d.fromDegrees(botPose[5]));
+                Swerve.getInstance().addReferencePose(reference, cameras[i].getFrameTimestamp());
+            }
+        }
+    }
 
-        visionTab.add("LimelightX", currentX);
-        visionTab.add("LimelightY", currentY);
-        visionTab.add("LimelightArea", currentA);
+    /**
+     * Uses the parsed results as the drift reference, which unlike the
+     * NetworkTables botpose say how many tags the pose was solved from.
+     */
+    private void addParsedReference(int index) {
+        if (resultsReaders[index].getSequence() == lastResults[index]) {
+            return;
+        }
+        lastResults[index] = getResults(index, results);
+        if (Config.Subsystems.SWERVE_ENABLED && results.valid
+                && results.fiducialCount >= VisionMap.MIN_REFERENCE_TAGS) {
+            double[] botPose = results.botpose_wpiblue;
+            Pose2d reference = new Pose2d(botPose[0], botPose[1], Rotation2d.fromDegrees(botPose[5]));
+            Swerve.getInstance().addReferencePose(reference, results.captureTimestamp);
+        }
     }
 }
@@ -0,0 +1,47 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.RobotMap.PPMap;
+
+/**
+ * Converts between the blue origin odometry uses and the frames PathPlannerLib
+ * works in. Paths are drawn once for blue. For red, PathPlannerLib mirrors
+ * them across the field width with the origin in the red alliance's corner,
+ * which is the same as mirroring across the midline in the blue origin.
+ */
+public class AllianceFlip {
+  private AllianceFlip() {
+  }
+
+  public static boolean shouldFlip() {
+    return DriverStation.getAlliance() == Alliance.Red;
+  }
+
+  /**
+   * Mirrors a blue alliance pose across the midline onto the red side, both in
+   * the blue origin.
+   */
+  public static Pose2d flip(Pose2d pose) {
+    return new Pose2d(PPMap.FIELD_LENGTH - pose.getX(), pose.getY(), flip(pose.getRotation()));
+  }
+
+  public static Rotation2d flip(Rotation2d rotation) {
+    return new Rotation2d(-rotation.getCos(), rotation.getSin());
+  }
+
+  /**
+   * Moves a blue origin pose into the origin PathPlannerLib uses for the
+   * current alliance, or back again. On red the two origins are opposite
+   * corners, so the same half turn about the field center goes both ways.
+   */
+  public static Pose2d convertOrigin(Pose2d pose) {
+    if (!shouldFlip()) {
+      return pose;
+    }
+    return new Pose2d(PPMap.FIELD_LENGTH - pose.getX(), PPMap.FIELD_WIDTH - pose.getY(),
+        pose.getRotation().plus(Rotation2d.fromDegrees(180)));
+  }
+}
@@ -44,6 +44,8 @@ public final class CTREConfigs {
     swerveDriveFXConfig.slot0.kI = DriveMap.DRIVE_KI;
     swerveDriveFXConfig.slot0.kD = DriveMap.DRIVE_KD;
     swerveDriveFXConfig.slot0.kF = DriveMap.DRIVE_KF;
+    swerveDriveFXConfig.slot1.kP = DriveMap.DRIVE_HOLD_KP;
+    swerveDriveFXConfig.slot1.kD = DriveMap.DRIVE_HOLD_KD;
     swerveDriveFXConfig.supplyCurrLimit = driveSupplyLimit;
     swerveDriveFXConfig.openloopRamp = DriveMap.OPEN_LOOP_RAMP;
     swerveDriveFXConfig.closedloopRamp = DriveMap.CLOSED_LOOP_RAMP;
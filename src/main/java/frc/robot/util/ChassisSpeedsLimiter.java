@@ -0,0 +1,69 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Slew rate limiter for chassis speeds. Each translation axis is limited on
+ * its own, then the magnitude of the change in velocity is limited so
+ * diagonal moves accelerate no harder than straight ones. Rotation is limited
+ * separately.
+ */
+public class ChassisSpeedsLimiter {
+  private double maxAcceleration;
+  private double maxAxisAcceleration;
+  private double maxAngularAcceleration;
+
+  private double vx, vy, omega;
+  private double lastTime;
+
+  /**
+   * @param maxAcceleration        Meters per second squared, on the combined translation
+   * @param maxAxisAcceleration    Meters per second squared, on each axis
+   * @param maxAngularAcceleration Radians per second squared
+   */
+  public ChassisSpeedsLimiter(double maxAcceleration, double maxAxisAcceleration, double maxAngularAcceleration) {
+    setLimits(maxAcceleration, maxAxisAcceleration, maxAngularAcceleration);
+    lastTime = Timer.getFPGATimestamp();
+  }
+
+  /**
+   * Changes the limits without dropping the speeds already reached.
+   */
+  public void setLimits(double maxAcceleration, double maxAxisAcceleration, double maxAngularAcceleration) {
+    this.maxAcceleration = maxAcceleration;
+    this.maxAxisAcceleration = maxAxisAcceleration;
+    this.maxAngularAcceleration = maxAngularAcceleration;
+  }
+
+  public ChassisSpeeds calculate(double targetVx, double targetVy, double targetOmega) {
+    double now = Timer.getFPGATimestamp();
+    double dt = now - lastTime;
+    lastTime = now;
+
+    double maxAxisDelta = maxAxisAcceleration * dt;
+    double dx = MathUtil.clamp(targetVx - vx, -maxAxisDelta, maxAxisDelta);
+    double dy = MathUtil.clamp(targetVy - vy, -maxAxisDelta, maxAxisDelta);
+    double delta = Math.hypot(dx, dy);
+    double maxDelta = maxAcceleration * dt;
+    if (delta > maxDelta) {
+      dx *= maxDelta / delta;
+      dy *= maxDelta / delta;
+    }
+    vx += dx;
+    vy += dy;
+
+    double maxAngularDelta = maxAngularAcceleration * dt;
+    omega += MathUtil.clamp(targetOmega - omega, -maxAngularDelta, maxAngularDelta);
+
+    return new ChassisSpeeds(vx, vy, omega);
+  }
+
+  public void reset(ChassisSpeeds speeds) {
+    vx = speeds.vxMetersPerSecond;
+    vy = speeds.vyMetersPerSecond;
+    omega = speeds.omegaRadiansPerSecond;
+    lastTime = Timer.getFPGATimestamp();
+  }
+}
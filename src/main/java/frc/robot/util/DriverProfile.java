@@ -0,0 +1,48 @@
+package frc.robot.util;
+
+/**
+ * Per-driver stick feel and acceleration limits for teleop driving.
+ */
+public class DriverProfile {
+  public final String name;
+  public final double translationExponent;
+  public final double rotationExponent;
+  public final double maxAcceleration;
+  public final double maxAxisAcceleration;
+  public final double maxAngularAcceleration;
+  public final boolean isOpenLoop;
+
+  /**
+   * @param name                   Shown in the dashboard chooser
+   * @param translationExponent    Curve exponent applied to the left stick magnitude
+   * @param rotationExponent       Curve exponent applied to the rotation stick
+   * @param maxAcceleration        Meters per second squared, on the combined translation
+   * @param maxAxisAcceleration    Meters per second squared, on each field axis
+   * @param maxAngularAcceleration Radians per second squared
+   * @param isOpenLoop             Drive with percent output instead of velocity control
+   */
+  public DriverProfile(
+      String name,
+      double translationExponent,
+      double rotationExponent,
+      double maxAcceleration,
+      double maxAxisAcceleration,
+      double maxAngularAcceleration,
+      boolean isOpenLoop) {
+    this.name = name;
+    this.translationExponent = translationExponent;
+    this.rotationExponent = rotationExponent;
+    this.maxAcceleration = maxAcceleration;
+    this.maxAxisAcceleration = maxAxisAcceleration;
+    this.maxAngularAcceleration = maxAngularAcceleration;
+    this.isOpenLoop = isOpenLoop;
+  }
+
+  public double shapeTranslation(double value) {
+    return MathUtils.curve(value, translationExponent);
+  }
+
+  public double shapeRotation(double value) {
+    return MathUtils.curve(value, rotationExponent);
+  }
+}
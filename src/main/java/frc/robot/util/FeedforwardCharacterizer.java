@@ -0,0 +1,288 @@
+package frc.robot.util;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.FunctionalCommand;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import edu.wpi.first.wpilibj2.command.WaitCommand;
+import frc.robot.RobotMap.CharacterizationMap;
+
+/**
+ * On-robot SysId. Runs quasistatic voltage ramps and dynamic voltage steps in
+ * both directions, samples voltage, position and velocity on a
+ * {@link Notifier} into preallocated buffers, then fits
+ *
+ * <pre>
+ * V = kS * sign(v) + kV * v + kA * a (+ kG, or + kG * cos(position) for an arm)
+ * </pre>
+ *
+ * by least squares and saves the result as {@link FeedforwardGains}. The
+ * fitted gains are also shown on the "Characterization" tab.
+ */
+public class FeedforwardCharacterizer {
+  public enum Mechanism {
+    /* Drivetrains, flywheels, anything gravity doesn't act on */
+    SIMPLE(3),
+    /* Constant gravity load */
+    ELEVATOR(4),
+    /* Gravity load proportional to cos(position), position in radians from horizontal */
+    ARM(4);
+
+    private final int terms;
+
+    Mechanism(int terms) {
+      this.terms = terms;
+    }
+  }
+
+  private final String name;
+  private final Mechanism mechanism;
+  private final DoubleConsumer voltageOutput;
+  private final DoubleSupplier position, velocity;
+  private final Notifier notifier;
+
+  private volatile double voltage = 0;
+  private volatile int phase = 0;
+
+  // Guarded by this
+  private final double[] times, voltages, positions, velocities;
+  private final int[] phases;
+  private int sampleCount = 0;
+
+  private FeedforwardGains lastFit;
+  private final GenericEntry kSEntry, kGEntry, kVEntry, kAEntry;
+
+  /**
+   * @param name          Preferences name of the fitted gains
+   * @param mechanism     Which gravity term to fit
+   * @param voltageOutput Applies a voltage to the mechanism
+   * @param position      Mechanism position, radians for an arm
+   * @param velocity      Mechanism velocity in position units per second
+   */
+  public FeedforwardCharacterizer(String name, Mechanism mechanism, DoubleConsumer voltageOutput,
+      DoubleSupplier position, DoubleSupplier velocity) {
+    this.name = name;
+    this.mechanism = mechanism;
+    this.voltageOutput = voltageOutput;
+    this.position = position;
+    this.velocity = velocity;
+
+    times = new double[CharacterizationMap.MAX_SAMPLES];
+    voltages = new double[CharacterizationMap.MAX_SAMPLES];
+    positions = new double[CharacterizationMap.MAX_SAMPLES];
+    velocities = new double[CharacterizationMap.MAX_SAMPLES];
+    phases = new int[CharacterizationMap.MAX_SAMPLES];
+
+    notifier = new Notifier(this::sample);
+    notifier.setName("FeedforwardCharacterizer " + name);
+
+    ShuffleboardLayout layout = Shuffleboard.getTab("Characterization")
+        .getLayout(name, BuiltInLayouts.kList);
+    kSEntry = layout.add("kS", 0).getEntry();
+    kGEntry = layout.add("kG", 0).getEntry();
+    kVEntry = layout.add("kV", 0).getEntry();
+    kAEntry = layout.add("kA", 0).getEntry();
+  }
+
+  private synchronized void sample() {
+    if (sampleCount >= times.length) {
+      return;
+    }
+    times[sampleCount] = Timer.getFPGATimestamp();
+    voltages[sampleCount] = voltage;
+    positions[sampleCount] = position.getAsDouble();
+    velocities[sampleCount] = velocity.getAsDouble();
+    phases[sampleCount] = phase;
+    sampleCount++;
+  }
+
+  /**
+   * Full routine: quasistatic forward and reverse, then dynamic forward and
+   * reverse, then fit and save. Each test stops early if the mechanism reaches
+   * the limit in its direction.
+   *
+   * @param requirement  Subsystem being characterized
+   * @param rampRate     Quasistatic ramp in volts per second
+   * @param stepVoltage  Dynamic step in volts
+   * @param forwardLimit True when the mechanism can't go further forward
+   * @param reverseLimit True when the mechanism can't go further in reverse
+   */
+  public Command characterizeCommand(Subsystem requirement, double rampRate, double stepVoltage,
+      BooleanSupplier forwardLimit, BooleanSupplier reverseLimit) {
+    return new SequentialCommandGroup(
+        new InstantCommand(this::clear),
+        testCommand(requirement, 1, t -> rampRate * t, forwardLimit),
+        new WaitCommand(CharacterizationMap.REST_TIME),
+        testCommand(requirement, 2, t -> -rampRate * t, reverseLimit),
+        new WaitCommand(CharacterizationMap.REST_TIME),
+        testCommand(requirement, 3, t -> stepVoltage, forwardLimit),
+        new WaitCommand(CharacterizationMap.REST_TIME),
+        testCommand(requirement, 4, t -> -stepVoltage, reverseLimit),
+        new InstantCommand(this::fitAndSave))
+        .finallyDo(interrupted -> {
+          notifier.stop();
+          voltageOutput.accept(0);
+        });
+  }
+
+  private Command testCommand(Subsystem requirement, int testPhase, DoubleUnaryOperator profile,
+      BooleanSupplier limit) {
+    Timer timer = new Timer();
+
+    return new FunctionalCommand(
+        () -> { // initialize
+          timer.restart();
+          phase = testPhase;
+          voltage = 0;
+          notifier.startPeriodic(CharacterizationMap.SAMPLE_PERIOD);
+        },
+        () -> { // execute
+          voltage = profile.applyAsDouble(timer.get());
+          voltageOutput.accept(voltage);
+        },
+        interrupted -> { // end
+          notifier.stop();
+          voltage = 0;
+          voltageOutput.accept(0);
+        },
+        () -> limit.getAsBoolean() || timer.hasElapsed(CharacterizationMap.TEST_TIMEOUT),
+        requirement);
+  }
+
+  public synchronized void clear() {
+    sampleCount = 0;
+  }
+
+  /**
+   * @return Gains from the last fit, or null if the routine hasn't completed
+   */
+  public FeedforwardGains getLastFit() {
+    return lastFit;
+  }
+
+  private void fitAndSave() {
+    FeedforwardGains gains = fit();
+    if (gains == null) {
+      DriverStation.reportWarning("Characterization of " + name + " failed, not enough moving samples", false);
+      return;
+    }
+    gains.save();
+    lastFit = gains;
+    kSEntry.setDouble(gains.kS);
+    kGEntry.setDouble(gains.kG);
+    kVEntry.setDouble(gains.kV);
+    kAEntry.setDouble(gains.kA);
+    DriverStation.reportWarning("Characterized " + gains + ", takes effect on restart", false);
+  }
+
+  /**
+   * Least squares fit of the recorded samples. Acceleration is the central
+   * difference of velocity within a test, samples at test boundaries and with
+   * the mechanism standing still are left out.
+   *
+   * @return Fitted gains, or null if there aren't enough usable samples
+   */
+  public synchronized FeedforwardGains fit() {
+    return fit(name, mechanism, times, voltages, positions, velocities, phases, sampleCount);
+  }
+
+  static FeedforwardGains fit(String name, Mechanism mechanism, double[] times, double[] voltages,
+      double[] positions, double[] velocities, int[] phases, int sampleCount) {
+    int n = mechanism.terms;
+    double[][] normal = new double[n][n + 1];
+    double[] row = new double[n];
+    int used = 0;
+
+    for (int i = 1; i < sampleCount - 1; i++) {
+      if (phases[i - 1] != phases[i] || phases[i + 1] != phases[i]) {
+        continue;
+      }
+      double v = velocities[i];
+      if (Math.abs(v) < CharacterizationMap.MIN_VELOCITY) {
+        continue;
+      }
+      double a = (velocities[i + 1] - velocities[i - 1]) / (times[i + 1] - times[i - 1]);
+
+      row[0] = Math.signum(v);
+      row[1] = v;
+      row[2] = a;
+      if (mechanism == Mechanism.ELEVATOR) {
+        row[3] = 1;
+      } else if (mechanism == Mechanism.ARM) {
+        row[3] = Math.cos(positions[i]);
+      }
+
+      // Accumulate X^T X | X^T V
+      for (int r = 0; r < n; r++) {
+        for (int c = 0; c < n; c++) {
+          normal[r][c] += row[r] * row[c];
+        }
+        normal[r][n] += row[r] * voltages[i];
+      }
+      used++;
+    }
+
+    if (used < CharacterizationMap.MIN_SAMPLES) {
+      return null;
+    }
+    double[] x = solve(normal);
+    if (x == null) {
+      return null;
+    }
+    double kG = (mechanism == Mechanism.SIMPLE) ? 0 : x[3];
+    return new FeedforwardGains(name, x[0], kG, x[1], x[2]);
+  }
+
+  /**
+   * Gaussian elimination with partial pivoting on an augmented matrix.
+   *
+   * @return Solution, or null if the system is singular
+   */
+  private static double[] solve(double[][] augmented) {
+    int n = augmented.length;
+    for (int col = 0; col < n; col++) {
+      int pivot = col;
+      for (int r = col + 1; r < n; r++) {
+        if (Math.abs(augmented[r][col]) > Math.abs(augmented[pivot][col])) {
+          pivot = r;
+        }
+      }
+      if (Math.abs(augmented[pivot][col]) < 1e-9) {
+        return null;
+      }
+      double[] swap = augmented[col];
+      augmented[col] = augmented[pivot];
+      augmented[pivot] = swap;
+
+      for (int r = col + 1; r < n; r++) {
+        double factor = augmented[r][col] / augmented[col][col];
+        for (int c = col; c <= n; c++) {
+          augmented[r][c] -= factor * augmented[col][c];
+        }
+      }
+    }
+
+    double[] x = new double[n];
+    for (int r = n - 1; r >= 0; r--) {
+      double sum = augmented[r][n];
+      for (int c = r + 1; c < n; c++) {
+        sum -= augmented[r][c] * x[c];
+      }
+      x[r] = sum / augmented[r][r];
+    }
+    return x;
+  }
+}
@@ -0,0 +1,71 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.controller.ArmFeedforward;
+import edu.wpi.first.math.controller.ElevatorFeedforward;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.Preferences;
+
+/**
+ * Feedforward gains for one mechanism, in volts, stored in Preferences so
+ * that values fitted by {@link FeedforwardCharacterizer} survive a redeploy.
+ * The constants in RobotMap are only used until a mechanism has been
+ * characterized.
+ */
+public class FeedforwardGains {
+  public final String name;
+  public final double kS, kG, kV, kA;
+
+  public FeedforwardGains(String name, double kS, double kG, double kV, double kA) {
+    this.name = name;
+    this.kS = kS;
+    this.kG = kG;
+    this.kV = kV;
+    this.kA = kA;
+  }
+
+  /**
+   * Loads a mechanism's gains, seeding Preferences with the defaults the first
+   * time.
+   */
+  public static FeedforwardGains load(String name, double kS, double kG, double kV, double kA) {
+    return new FeedforwardGains(name,
+        load(name, "kS", kS),
+        load(name, "kG", kG),
+        load(name, "kV", kV),
+        load(name, "kA", kA));
+  }
+
+  private static double load(String name, String gain, double defaultValue) {
+    String key = name + " " + gain;
+    Preferences.initDouble(key, defaultValue);
+    return Preferences.getDouble(key, defaultValue);
+  }
+
+  public void save() {
+    Preferences.setDouble(name + " kS", kS);
+    Preferences.setDouble(name + " kG", kG);
+    Preferences.setDouble(name + " kV", kV);
+    Preferences.setDouble(name + " kA", kA);
+  }
+
+  /**
+   * @param scale Multiplier applied to every gain, e.g. 1 / 12 for CTRE
+   *              percent output arbitrary feedforward
+   */
+  public SimpleMotorFeedforward toSimpleFeedforward(double scale) {
+    return new SimpleMotorFeedforward(kS * scale, kV * scale, kA * scale);
+  }
+
+  public ElevatorFeedforward toElevatorFeedforward() {
+    return new ElevatorFeedforward(kS, kG, kV, kA);
+  }
+
+  public ArmFeedforward toArmFeedforward() {
+    return new ArmFeedforward(kS, kG, kV, kA);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s kS=%.4f kG=%.4f kV=%.4f kA=%.4f", name, kS, kG, kV, kA);
+  }
+}
@@ -0,0 +1,143 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.TimestampedDouble;
+
+/**
+ * One physical Limelight. Subscribes to the camera's NetworkTables topics once
+ * and copies every field we use into primitives on {@link #update()}, so the
+ * per-loop reads don't go through {@link LimelightHelpers}' table lookup by
+ * name.
+ */
+public class LimelightCamera {
+  private static final double[] EMPTY = new double[0];
+
+  private final String name;
+
+  private final DoubleSubscriber tv, tx, ty, ta, tl, cl, tid;
+  private final DoubleArraySubscriber botPose, botPoseBlue, botPoseRed, targetPoseRobotSpace;
+
+  // An unpublished topic reads timestamp 0, so nothing counts as a frame until the camera publishes
+  private long lastFrameTime = 0;
+  private double frameTimestamp;
+
+  private boolean hasTarget;
+  private double currentX, currentY, currentA;
+  private double pipelineLatency, captureLatency;
+  private int fiducialId = -1;
+  private double[] currentBotPose = EMPTY;
+  private double[] currentBotPoseBlue = EMPTY;
+  private double[] currentBotPoseRed = EMPTY;
+  private double[] currentTargetPoseRobotSpace = EMPTY;
+
+  public LimelightCamera(String name) {
+    this.name = LimelightHelpers.sanitizeName(name);
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable(this.name);
+    tv = table.getDoubleTopic("tv").subscribe(0.0); // Whether limelight detects any valid targets 0, 1
+    tx = table.getDoubleTopic("tx").subscribe(0.0); // Horizontal offset from crosshair to target (-27, 27)
+    ty = table.getDoubleTopic("ty").subscribe(0.0); // Vertical offset from crosshair to target (-20.5, 20.5)
+    ta = table.getDoubleTopic("ta").subscribe(0.0); // Target area (Between 0% and 100%)
+    tl = table.getDoubleTopic("tl").subscribe(0.0); // Pipeline latency (ms), republished every frame
+    cl = table.getDoubleTopic("cl").subscribe(0.0); // Capture latency (ms)
+    tid = table.getDoubleTopic("tid").subscribe(-1.0);
+    botPose = table.getDoubleArrayTopic("botpose").subscribe(EMPTY);
+    botPoseBlue = table.getDoubleArrayTopic("botpose_wpiblue").subscribe(EMPTY);
+    botPoseRed = table.getDoubleArrayTopic("botpose_wpired").subscribe(EMPTY);
+    targetPoseRobotSpace = table.getDoubleArrayTopic("targetpose_robotspace").subscribe(EMPTY);
+  }
+
+  /**
+   * Pulls the latest frame from NetworkTables. Fields are left untouched when
+   * the camera hasn't published a new frame since the last call.
+   *
+   * @return true if a new frame was read
+   */
+  public boolean update() {
+    TimestampedDouble latency = tl.getAtomic();
+    if (latency.timestamp == lastFrameTime) {
+      return false;
+    }
+    lastFrameTime = latency.timestamp;
+
+    pipelineLatency = latency.value;
+    captureLatency = cl.get();
+    hasTarget = tv.get() >= 1.0;
+    currentX = tx.get();
+    currentY = ty.get();
+    currentA = ta.get();
+    fiducialId = (int) tid.get();
+    currentBotPose = botPose.get();
+    currentBotPoseBlue = botPoseBlue.get();
+    currentBotPoseRed = botPoseRed.get();
+    currentTargetPoseRobotSpace = targetPoseRobotSpace.get();
+
+    // NT local timestamps are FPGA microseconds on the RIO
+    frameTimestamp = latency.timestamp / 1e6 - (pipelineLatency + captureLatency) / 1000.0;
+    return true;
+  }
+
+  /**
+   * @return true if the camera has published at least one frame
+   */
+  public boolean isConnected() {
+    return lastFrameTime > 0;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean getHasTarget() {
+    return hasTarget;
+  }
+
+  public double getHorizontalOffset() {
+    return currentX;
+  }
+
+  public double getVerticalOffset() {
+    return currentY;
+  }
+
+  public double getCurrentArea() {
+    return currentA;
+  }
+
+  public int getFiducialId() {
+    return fiducialId;
+  }
+
+  /**
+   * @return Pipeline plus capture latency of the current frame, in milliseconds
+   */
+  public double getTotalLatency() {
+    return pipelineLatency + captureLatency;
+  }
+
+  /**
+   * @return FPGA time in seconds at which the current frame was captured
+   */
+  public double getFrameTimestamp() {
+    return frameTimestamp;
+  }
+
+  public double[] getBotPose() {
+    return currentBotPose;
+  }
+
+  public double[] getBotPose_wpiBlue() {
+    return currentBotPoseBlue;
+  }
+
+  public double[] getBotPose_wpiRed() {
+    return currentBotPoseRed;
+  }
+
+  public double[] getTargetPose_RobotSpace() {
+    return currentTargetPoseRobotSpace;
+  }
+}
@@ -0,0 +1,314 @@
+package frc.robot.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringSubscriber;
+import edu.wpi.first.networktables.TimestampedString;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Streaming alternative to {@link LimelightHelpers#getLatestResults(String)}.
+ * Walks the JSON dump with Jackson's token stream, keeps only the fields we
+ * use (timestamps, latencies, botpose and fiducials) and writes them into
+ * preallocated {@link Snapshot}s. Parsing runs on a {@link Notifier} thread and
+ * is skipped when the dump hasn't changed, so the main loop only pays for
+ * copying the last snapshot out.
+ */
+public class LimelightResultsReader {
+  public static final int MAX_FIDUCIALS = 16;
+
+  private static final JsonFactory factory = new JsonFactory();
+
+  public static class Fiducial {
+    public int fiducialID;
+    public double tx, ty, ta;
+    public final double[] robotPose_FieldSpace = new double[6];
+    public final double[] targetPose_RobotSpace = new double[6];
+
+    void clear() {
+      fiducialID = 0;
+      tx = 0;
+      ty = 0;
+      ta = 0;
+      Arrays.fill(robotPose_FieldSpace, 0);
+      Arrays.fill(targetPose_RobotSpace, 0);
+    }
+
+    void copyFrom(Fiducial other) {
+      fiducialID = other.fiducialID;
+      tx = other.tx;
+      ty = other.ty;
+      ta = other.ta;
+      System.arraycopy(other.robotPose_FieldSpace, 0, robotPose_FieldSpace, 0, 6);
+      System.arraycopy(other.targetPose_RobotSpace, 0, targetPose_RobotSpace, 0, 6);
+    }
+  }
+
+  public static class Snapshot {
+    public double pipelineID;
+    public double latency_pipeline;
+    public double latency_capture;
+    public double latency_jsonParse;
+    public double timestamp_LIMELIGHT_publish;
+    public double timestamp_RIOFPGA_capture;
+    /* FPGA seconds the frame was captured, from when the dump arrived minus the camera's latencies */
+    public double captureTimestamp;
+    public boolean valid;
+    public final double[] botpose = new double[6];
+    public final double[] botpose_wpiblue = new double[6];
+    public final double[] botpose_wpired = new double[6];
+    public final Fiducial[] fiducials = new Fiducial[MAX_FIDUCIALS];
+    public int fiducialCount;
+
+    public Snapshot() {
+      for (int i = 0; i < MAX_FIDUCIALS; i++) {
+        fiducials[i] = new Fiducial();
+      }
+    }
+
+    public void copyFrom(Snapshot other) {
+      pipelineID = other.pipelineID;
+      latency_pipeline = other.latency_pipeline;
+      latency_capture = other.latency_capture;
+      latency_jsonParse = other.latency_jsonParse;
+      timestamp_LIMELIGHT_publish = other.timestamp_LIMELIGHT_publish;
+      timestamp_RIOFPGA_capture = other.timestamp_RIOFPGA_capture;
+      captureTimestamp = other.captureTimestamp;
+      valid = other.valid;
+      System.arraycopy(other.botpose, 0, botpose, 0, 6);
+      System.arraycopy(other.botpose_wpiblue, 0, botpose_wpiblue, 0, 6);
+      System.arraycopy(other.botpose_wpired, 0, botpose_wpired, 0, 6);
+      fiducialCount = other.fiducialCount;
+      for (int i = 0; i < fiducialCount; i++) {
+        fiducials[i].copyFrom(other.fiducials[i]);
+      }
+    }
+  }
+
+  private final StringSubscriber json;
+  private final Notifier notifier;
+
+  // Only touched by the notifier thread
+  private final Snapshot parsed = new Snapshot();
+  private long lastJsonTime = -1;
+  private String lastJson = "";
+
+  // Guarded by this
+  private final Snapshot latest = new Snapshot();
+  private long sequence = 0;
+
+  public LimelightResultsReader(String limelightName) {
+    String name = LimelightHelpers.sanitizeName(limelightName);
+    json = NetworkTableInstance.getDefault().getTable(name).getStringTopic("json").subscribe("");
+    notifier = new Notifier(this::poll);
+    notifier.setName("LimelightResultsReader " + name);
+  }
+
+  /**
+   * Starts parsing on the background thread.
+   *
+   * @param periodSeconds How often to check for a new JSON dump
+   */
+  public void start(double periodSeconds) {
+    notifier.startPeriodic(periodSeconds);
+  }
+
+  public void stop() {
+    notifier.stop();
+  }
+
+  /**
+   * Copies the most recently parsed results.
+   *
+   * @param out Snapshot to copy into
+   * @return Count of parsed dumps so far, changes whenever new results arrive
+   */
+  public synchronized long getLatest(Snapshot out) {
+    out.copyFrom(latest);
+    return sequence;
+  }
+
+  /**
+   * @return Count of parsed dumps so far, to check for new results without
+   *         copying them
+   */
+  public synchronized long getSequence() {
+    return sequence;
+  }
+
+  private void poll() {
+    TimestampedString dump = json.getAtomic();
+    if (dump.timestamp == lastJsonTime) {
+      return;
+    }
+    lastJsonTime = dump.timestamp;
+    // The dump is republished every frame, even when nothing in it moved
+    if (dump.value.isEmpty() || dump.value.equals(lastJson)) {
+      return;
+    }
+    lastJson = dump.value;
+
+    long start = System.nanoTime();
+    try {
+      parse(dump.value, parsed);
+    } catch (IOException e) {
+      DriverStation.reportWarning("Could not parse Limelight results: " + e.getMessage(), false);
+      return;
+    }
+    parsed.latency_jsonParse = (System.nanoTime() - start) * .000001;
+    // NT local timestamps are FPGA microseconds on the RIO
+    parsed.captureTimestamp = dump.timestamp / 1e6 - (parsed.latency_pipeline + parsed.latency_capture) / 1000.0;
+
+    synchronized (this) {
+      latest.copyFrom(parsed);
+      sequence++;
+    }
+  }
+
+  /**
+   * Parses a Limelight JSON dump into a snapshot, skipping every field the
+   * snapshot doesn't hold. Anything the dump leaves out reads as zero, never
+   * as the previous frame's value.
+   *
+   * @param dump JSON dump from the "json" entry
+   * @param out  Snapshot to parse into
+   */
+  public static void parse(String dump, Snapshot out) throws IOException {
+    out.pipelineID = 0;
+    out.latency_pipeline = 0;
+    out.latency_capture = 0;
+    out.timestamp_LIMELIGHT_publish = 0;
+    out.timestamp_RIOFPGA_capture = 0;
+    out.valid = false;
+    Arrays.fill(out.botpose, 0);
+    Arrays.fill(out.botpose_wpiblue, 0);
+    Arrays.fill(out.botpose_wpired, 0);
+    out.fiducialCount = 0;
+
+    try (JsonParser parser = factory.createParser(dump)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if (field.equals("Results")) {
+          parseResults(parser, out);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  private static void parseResults(JsonParser parser, Snapshot out) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "pID":
+          out.pipelineID = parser.getValueAsDouble();
+          break;
+        case "tl":
+          out.latency_pipeline = parser.getValueAsDouble();
+          break;
+        case "cl":
+          out.latency_capture = parser.getValueAsDouble();
+          break;
+        case "ts":
+          out.timestamp_LIMELIGHT_publish = parser.getValueAsDouble();
+          break;
+        case "ts_rio":
+          out.timestamp_RIOFPGA_capture = parser.getValueAsDouble();
+          break;
+        case "v":
+          out.valid = parser.getValueAsInt() == 1;
+          break;
+        case "botpose":
+          readArray(parser, out.botpose);
+          break;
+        case "botpose_wpiblue":
+          readArray(parser, out.botpose_wpiblue);
+          break;
+        case "botpose_wpired":
+          readArray(parser, out.botpose_wpired);
+          break;
+        case "Fiducial":
+          parseFiducials(parser, out);
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+  }
+
+  private static void parseFiducials(JsonParser parser, Snapshot out) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      if (out.fiducialCount >= MAX_FIDUCIALS) {
+        parser.skipChildren();
+        continue;
+      }
+      Fiducial fiducial = out.fiducials[out.fiducialCount++];
+      fiducial.clear();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        switch (field) {
+          case "fID":
+            fiducial.fiducialID = parser.getValueAsInt();
+            break;
+          case "tx":
+            fiducial.tx = parser.getValueAsDouble();
+            break;
+          case "ty":
+            fiducial.ty = parser.getValueAsDouble();
+            break;
+          case "ta":
+            fiducial.ta = parser.getValueAsDouble();
+            break;
+          case "t6r_fs":
+            readArray(parser, fiducial.robotPose_FieldSpace);
+            break;
+          case "t6t_rs":
+            readArray(parser, fiducial.targetPose_RobotSpace);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  private static void readArray(JsonParser parser, double[] into) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    int i = 0;
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+      if (i < into.length) {
+        into[i++] = parser.getValueAsDouble();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    // A short array mustn't leave the previous frame's values behind
+    Arrays.fill(into, i, into.length, 0);
+  }
+}
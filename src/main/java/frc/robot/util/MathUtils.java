@@ -35,4 +35,15 @@ public class MathUtils {
 
     return value;
   }
+
+  /**
+   * Raises the magnitude of the input to a power. keeps the sign.
+   *
+   * @param value The value to be modified, between -1 and 1.
+   * @param exponent 1 for linear, 2 for squared, etc.
+   * @return Curved value.
+   */
+  public static double curve(double value, double exponent) {
+    return Math.copySign(Math.pow(Math.abs(value), exponent), value);
+  }
 }
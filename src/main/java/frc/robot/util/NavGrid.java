@@ -0,0 +1,377 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import frc.robot.RobotMap.NavMap;
+import frc.robot.RobotMap.PPMap;
+
+/**
+ * Occupancy grid of the field for planning paths around the grids, charging
+ * stations and barriers. Obstacles are grown by the robot radius once at
+ * construction, so planning treats the robot as a point. Searches run A* over
+ * the 8-connected grid into preallocated arrays, then pull the cell path tight
+ * into the few corners a trajectory needs. A spline through the corners can
+ * still swing wide of them, so trajectories are checked against the grid
+ * with {@link #isClear} and the corners split with {@link #subdivide} until
+ * they stay clear.
+ */
+public class NavGrid {
+  private static final int[] DX = { 1, -1, 0, 0, 1, 1, -1, -1 };
+  private static final int[] DY = { 0, 0, 1, -1, 1, -1, 1, -1 };
+  private static final float SQRT2 = (float) Math.sqrt(2);
+
+  private final double resolution;
+  private final int width, height;
+  private final boolean[] blocked;
+
+  // Search state, reused between searches. A cell's entries are only valid
+  // when its stamp matches the current search.
+  private final float[] g;
+  private final int[] parent;
+  private final int[] stamp;
+  private final boolean[] closed;
+  private int search = 0;
+
+  // Binary min-heap of cells keyed on f
+  private final int[] heap;
+  private final float[] f;
+  private final int[] heapIndex;
+  private int heapSize;
+
+  private final int[] cells;
+  private double lastSearchTime;
+
+  public NavGrid() {
+    resolution = NavMap.RESOLUTION;
+    width = (int) Math.ceil(PPMap.FIELD_LENGTH / resolution);
+    height = (int) Math.ceil(PPMap.FIELD_WIDTH / resolution);
+
+    int count = width * height;
+    blocked = new boolean[count];
+    g = new float[count];
+    parent = new int[count];
+    stamp = new int[count];
+    closed = new boolean[count];
+    heap = new int[count];
+    f = new float[count];
+    heapIndex = new int[count];
+    cells = new int[count];
+
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        blocked[y * width + x] = isObstructed((x + 0.5) * resolution, (y + 0.5) * resolution);
+      }
+    }
+  }
+
+  private static boolean isObstructed(double x, double y) {
+    double radius = NavMap.ROBOT_RADIUS;
+    if (x < radius || y < radius || x > PPMap.FIELD_LENGTH - radius || y > PPMap.FIELD_WIDTH - radius) {
+      return true;
+    }
+    for (double[] obstacle : NavMap.OBSTACLES) {
+      // Blue side as listed, then mirrored across the midline for red
+      if (distanceTo(obstacle[0], obstacle[1], obstacle[2], obstacle[3], x, y) < radius
+          || distanceTo(PPMap.FIELD_LENGTH - obstacle[2], obstacle[1], PPMap.FIELD_LENGTH - obstacle[0],
+              obstacle[3], x, y) < radius) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static double distanceTo(double minX, double minY, double maxX, double maxY, double x, double y) {
+    double dx = Math.max(Math.max(minX - x, 0), x - maxX);
+    double dy = Math.max(Math.max(minY - y, 0), y - maxY);
+    return Math.hypot(dx, dy);
+  }
+
+  /**
+   * Plans a collision free path. Endpoints inside an obstacle's margin, like a
+   * scoring pose against the grid, are joined from the nearest free cell.
+   *
+   * @param start Blue origin field position to start from
+   * @param goal  Blue origin field position to end at
+   * @return Corners of the path, starting at start and ending at goal, or an
+   *         empty list if the goal can't be reached
+   */
+  public List<Translation2d> findPath(Translation2d start, Translation2d goal) {
+    long begin = System.nanoTime();
+    List<Translation2d> waypoints = new ArrayList<>();
+
+    int startCell = nearestFree(cellOf(start.getX(), start.getY()));
+    int goalCell = nearestFree(cellOf(goal.getX(), goal.getY()));
+    int length = startCell < 0 || goalCell < 0 ? 0 : search(startCell, goalCell);
+
+    if (length > 0) {
+      waypoints.add(start);
+      // Keep a corner only where the straight line from the last one is blocked
+      int anchor = 0;
+      for (int i = 2; i < length; i++) {
+        if (!hasLineOfSight(cells[anchor], cells[i])) {
+          anchor = i - 1;
+          addCorner(waypoints, centerOf(cells[anchor]));
+        }
+      }
+      // The goal replaces a corner it's right next to
+      if (waypoints.size() > 1 && waypoints.get(waypoints.size() - 1).getDistance(goal) < resolution * 2) {
+        waypoints.remove(waypoints.size() - 1);
+      }
+      waypoints.add(goal);
+    }
+
+    lastSearchTime = (System.nanoTime() - begin) / 1e6;
+    return waypoints;
+  }
+
+  private void addCorner(List<Translation2d> waypoints, Translation2d corner) {
+    // Snapping onto the grid can leave a corner right on top of the start
+    if (waypoints.get(waypoints.size() - 1).getDistance(corner) >= resolution * 2) {
+      waypoints.add(corner);
+    }
+  }
+
+  /**
+   * @return Milliseconds the last call to {@link #findPath} took
+   */
+  public double getLastSearchTime() {
+    return lastSearchTime;
+  }
+
+  public boolean isBlocked(Translation2d position) {
+    return blocked[cellOf(position.getX(), position.getY())];
+  }
+
+  /**
+   * Samples a trajectory against the grid. Only the part between the first
+   * and last free samples is checked, since the path may start or end inside
+   * an obstacle's margin.
+   *
+   * @return False if the trajectory passes through a blocked cell on its way
+   */
+  public boolean isClear(Trajectory trajectory) {
+    double duration = trajectory.getTotalTimeSeconds();
+    int samples = (int) Math.ceil(duration / NavMap.CHECK_PERIOD) + 1;
+    boolean left = false, entered = false;
+    for (int i = 0; i < samples; i++) {
+      Translation2d position = trajectory.sample(Math.min(i * NavMap.CHECK_PERIOD, duration))
+          .poseMeters.getTranslation();
+      if (!isBlocked(position)) {
+        if (entered) {
+          // Came back out of an obstacle
+          return false;
+        }
+        left = true;
+      } else if (left) {
+        entered = true;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return The corners with the midpoint of every leg added, so a spline
+   *         through them stays closer to the straight legs
+   */
+  public static List<Translation2d> subdivide(List<Translation2d> corners) {
+    List<Translation2d> points = new ArrayList<>(2 * corners.size());
+    for (int i = 0; i < corners.size(); i++) {
+      if (i > 0) {
+        points.add(corners.get(i - 1).interpolate(corners.get(i), 0.5));
+      }
+      points.add(corners.get(i));
+    }
+    return points;
+  }
+
+  /**
+   * A* from start to goal. Leaves the cell path from start to goal in cells.
+   *
+   * @return Number of cells in the path, 0 if there is none
+   */
+  private int search(int start, int goal) {
+    search++;
+    heapSize = 0;
+    int goalX = goal % width, goalY = goal / width;
+
+    visit(start, 0, -1, goalX, goalY);
+    while (heapSize > 0) {
+      int cell = pop();
+      if (cell == goal) {
+        return tracePath(goal);
+      }
+      closed[cell] = true;
+
+      int x = cell % width, y = cell / width;
+      for (int i = 0; i < DX.length; i++) {
+        int nx = x + DX[i], ny = y + DY[i];
+        if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+          continue;
+        }
+        int next = ny * width + nx;
+        if (blocked[next] || (stamp[next] == search && closed[next])) {
+          continue;
+        }
+        boolean diagonal = i >= 4;
+        // Don't cut corners
+        if (diagonal && (blocked[y * width + nx] || blocked[ny * width + x])) {
+          continue;
+        }
+        float cost = g[cell] + (diagonal ? SQRT2 : 1f);
+        if (stamp[next] != search || cost < g[next]) {
+          visit(next, cost, cell, goalX, goalY);
+        }
+      }
+    }
+    return 0;
+  }
+
+  private void visit(int cell, float cost, int from, int goalX, int goalY) {
+    boolean queued = stamp[cell] == search;
+    if (!queued) {
+      stamp[cell] = search;
+      closed[cell] = false;
+    }
+    g[cell] = cost;
+    parent[cell] = from;
+
+    // Octile distance
+    int dx = Math.abs(cell % width - goalX), dy = Math.abs(cell / width - goalY);
+    f[cell] = cost + Math.abs(dx - dy) + SQRT2 * Math.min(dx, dy);
+
+    if (queued) {
+      siftUp(heapIndex[cell]);
+    } else {
+      heap[heapSize] = cell;
+      heapIndex[cell] = heapSize;
+      siftUp(heapSize++);
+    }
+  }
+
+  private int tracePath(int goal) {
+    int length = 0;
+    for (int cell = goal; cell >= 0; cell = parent[cell]) {
+      cells[length++] = cell;
+    }
+    // Reverse so the path runs start to goal
+    for (int i = 0, j = length - 1; i < j; i++, j--) {
+      int swap = cells[i];
+      cells[i] = cells[j];
+      cells[j] = swap;
+    }
+    return length;
+  }
+
+  private int pop() {
+    int top = heap[0];
+    heap[0] = heap[--heapSize];
+    heapIndex[heap[0]] = 0;
+    siftDown(0);
+    return top;
+  }
+
+  private void siftUp(int i) {
+    int cell = heap[i];
+    while (i > 0) {
+      int up = (i - 1) / 2;
+      if (f[heap[up]] <= f[cell]) {
+        break;
+      }
+      heap[i] = heap[up];
+      heapIndex[heap[i]] = i;
+      i = up;
+    }
+    heap[i] = cell;
+    heapIndex[cell] = i;
+  }
+
+  private void siftDown(int i) {
+    int cell = heap[i];
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && f[heap[child + 1]] < f[heap[child]]) {
+        child++;
+      }
+      if (f[heap[child]] >= f[cell]) {
+        break;
+      }
+      heap[i] = heap[child];
+      heapIndex[heap[i]] = i;
+      i = child;
+    }
+    heap[i] = cell;
+    heapIndex[cell] = i;
+  }
+
+  /**
+   * Walks the cells between two cell centers, including both cells on
+   * either side of every diagonal step so the line can't slip between two
+   * blocked cells.
+   */
+  private boolean hasLineOfSight(int from, int to) {
+    int x = from % width, y = from / width;
+    int endX = to % width, endY = to / width;
+    int dx = Math.abs(endX - x), dy = Math.abs(endY - y);
+    int stepX = endX > x ? 1 : -1, stepY = endY > y ? 1 : -1;
+    int error = dx - dy;
+
+    while (x != endX || y != endY) {
+      int doubled = 2 * error;
+      boolean moveX = doubled > -dy, moveY = doubled < dx;
+      if (moveX && moveY && (blocked[y * width + x + stepX] || blocked[(y + stepY) * width + x])) {
+        return false;
+      }
+      if (moveX) {
+        error -= dy;
+        x += stepX;
+      }
+      if (moveY) {
+        error += dx;
+        y += stepY;
+      }
+      if (blocked[y * width + x]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return The cell itself if free, otherwise the closest free cell within
+   *         a meter, or -1 if there is none
+   */
+  private int nearestFree(int cell) {
+    if (!blocked[cell]) {
+      return cell;
+    }
+    int x = cell % width, y = cell / width;
+    int best = -1, bestDistance = Integer.MAX_VALUE;
+    int reach = (int) Math.ceil(1.0 / resolution);
+    for (int ny = Math.max(0, y - reach); ny <= Math.min(height - 1, y + reach); ny++) {
+      for (int nx = Math.max(0, x - reach); nx <= Math.min(width - 1, x + reach); nx++) {
+        int distance = (nx - x) * (nx - x) + (ny - y) * (ny - y);
+        if (!blocked[ny * width + nx] && distance < bestDistance) {
+          best = ny * width + nx;
+          bestDistance = distance;
+        }
+      }
+    }
+    return best;
+  }
+
+  private int cellOf(double x, double y) {
+    int cx = Math.min(Math.max((int) (x / resolution), 0), width - 1);
+    int cy = Math.min(Math.max((int) (y / resolution), 0), height - 1);
+    return cy * width + cx;
+  }
+
+  private Translation2d centerOf(int cell) {
+    return new Translation2d((cell % width + 0.5) * resolution, (cell / width + 0.5) * resolution);
+  }
+}
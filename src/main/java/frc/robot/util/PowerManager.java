@@ -0,0 +1,191 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+import frc.robot.RobotMap.PowerMap;
+
+/**
+ * Shares the current the battery can deliver between mechanisms by priority.
+ * The battery is modeled as an open circuit voltage behind a fixed
+ * resistance, so the current that would pull the bus down to
+ * {@link PowerMap#MIN_VOLTAGE} can be estimated from the measured voltage and
+ * total current.
+ *
+ * While the robot draws well under that estimate every consumer keeps its
+ * full limit. Once demand gets close, each consumer is cut back to its
+ * minimum and the remaining budget is handed out in priority order, so the
+ * drivetrain keeps its current and the compressor is the first to give way.
+ * Limits drop immediately but only rise again after they've been stable for
+ * {@link PowerMap#RESTORE_DELAY}, so they don't chatter around the threshold.
+ *
+ * A consumer's limits are also scaled by its {@link ThermalMonitor} derate,
+ * so a hot mechanism gives up current whatever the battery is doing.
+ */
+public class PowerManager {
+  private static PowerManager instance;
+
+  public static PowerManager getInstance() {
+    if (instance == null)
+      instance = new PowerManager();
+    return instance;
+  }
+
+  private static class Budgeted {
+    final String name;
+    final int priority;
+    final double minCurrent, maxCurrent;
+    final boolean onOff;
+    final DoubleConsumer setLimit;
+    final GenericEntry entry;
+
+    double deratedMin, deratedMax;
+    double applied;
+    double allocation;
+    double allocationChangedTime = 0;
+
+    Budgeted(String name, int priority, double minCurrent, double maxCurrent, boolean onOff,
+        DoubleConsumer setLimit, GenericEntry entry) {
+      this.name = name;
+      this.priority = priority;
+      this.minCurrent = minCurrent;
+      this.maxCurrent = maxCurrent;
+      this.onOff = onOff;
+      this.setLimit = setLimit;
+      this.entry = entry;
+      applied = maxCurrent;
+      allocation = maxCurrent;
+    }
+  }
+
+  private final PowerDistribution powerDistribution = new PowerDistribution();
+  private final LinearFilter openCircuitFilter = LinearFilter.singlePoleIIR(PowerMap.VOLTAGE_TIME_CONSTANT, 0.02);
+  // Sorted highest priority first
+  private final List<Budgeted> consumers = new ArrayList<>();
+  private boolean highDemand = false;
+
+  private final ShuffleboardTab powerTab = Shuffleboard.getTab("Power");
+  private final GenericEntry totalCurrentEntry, availableEntry, highDemandEntry;
+
+  private PowerManager() {
+    totalCurrentEntry = powerTab.add("Total Current", 0.0).getEntry();
+    availableEntry = powerTab.add("Available Current", 0.0).getEntry();
+    highDemandEntry = powerTab.add("High Demand", false).getEntry();
+  }
+
+  /**
+   * Adds a mechanism to the budget. It starts at its maximum, the limit it
+   * would have without a power manager.
+   *
+   * @param priority   Lower numbers are served first
+   * @param minCurrent Amps the consumer always keeps
+   * @param maxCurrent Amps the consumer gets when there's enough to go round
+   * @param setLimit   Applies a new limit in amps, only called when it changes
+   */
+  public void register(String name, int priority, double minCurrent, double maxCurrent, DoubleConsumer setLimit) {
+    add(new Budgeted(name, priority, minCurrent, maxCurrent, false, setLimit,
+        powerTab.add(name + " Limit", maxCurrent).getEntry()));
+  }
+
+  /**
+   * Adds a load that can only be switched on or off, like the compressor. It
+   * is only switched on when its whole draw fits in the budget.
+   *
+   * @param current Amps drawn while on
+   * @param setOn   Switches the load, only called when it changes
+   */
+  public void registerSwitch(String name, int priority, double current, Consumer<Boolean> setOn) {
+    add(new Budgeted(name, priority, 0, current, true, amps -> setOn.accept(amps > 0),
+        powerTab.add(name + " Limit", current).getEntry()));
+  }
+
+  private void add(Budgeted consumer) {
+    int i = 0;
+    while (i < consumers.size() && consumers.get(i).priority <= consumer.priority) {
+      i++;
+    }
+    consumers.add(i, consumer);
+  }
+
+  public boolean isHighDemand() {
+    return highDemand;
+  }
+
+  /**
+   * Re-budgets from this loop's voltage and current. Call once per loop.
+   */
+  public void update() {
+    double totalCurrent = powerDistribution.getTotalCurrent();
+    double voltage = RobotController.getBatteryVoltage();
+    double openCircuit = openCircuitFilter.calculate(voltage + totalCurrent * PowerMap.BATTERY_RESISTANCE);
+    double available = Math.max(0, (openCircuit - PowerMap.MIN_VOLTAGE) / PowerMap.BATTERY_RESISTANCE
+        - PowerMap.BASE_LOAD);
+
+    // Hysteresis so the phase doesn't flip every loop near the threshold
+    double demand = totalCurrent - PowerMap.BASE_LOAD;
+    if (highDemand) {
+      highDemand = demand > available * PowerMap.RELEASE_FRACTION;
+    } else {
+      highDemand = demand > available * PowerMap.HIGH_DEMAND_FRACTION;
+    }
+
+    ThermalMonitor thermals = ThermalMonitor.getInstance();
+    for (Budgeted consumer : consumers) {
+      double derate = thermals.getDerate(consumer.name);
+      consumer.deratedMax = consumer.maxCurrent * derate;
+      consumer.deratedMin = Math.min(consumer.minCurrent, consumer.deratedMax);
+    }
+
+    double remaining = available;
+    if (highDemand) {
+      for (Budgeted consumer : consumers) {
+        remaining -= consumer.deratedMin;
+      }
+    }
+
+    double now = Timer.getFPGATimestamp();
+    for (Budgeted consumer : consumers) {
+      double allocation = consumer.deratedMax;
+      if (highDemand) {
+        double range = consumer.deratedMax - consumer.deratedMin;
+        double extra = Math.min(Math.max(remaining, 0), range);
+        if (consumer.onOff && extra < range) {
+          extra = 0;
+        }
+        allocation = consumer.deratedMin + extra;
+        remaining -= extra;
+      }
+      apply(consumer, allocation, now);
+    }
+
+    totalCurrentEntry.setDouble(totalCurrent);
+    availableEntry.setDouble(available);
+    highDemandEntry.setBoolean(highDemand);
+  }
+
+  private void apply(Budgeted consumer, double allocation, double now) {
+    if (Math.abs(allocation - consumer.allocation) >= PowerMap.LIMIT_STEP) {
+      consumer.allocation = allocation;
+      consumer.allocationChangedTime = now;
+    }
+
+    double target = consumer.allocation;
+    boolean restoring = target > consumer.applied;
+    if (Math.abs(target - consumer.applied) < PowerMap.LIMIT_STEP
+        || (restoring && now - consumer.allocationChangedTime < PowerMap.RESTORE_DELAY)) {
+      return;
+    }
+    consumer.applied = target;
+    consumer.setLimit.accept(target);
+    consumer.entry.setDouble(target);
+  }
+}
@@ -0,0 +1,135 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.RobotMap.DriveMap;
+
+/**
+ * Detects wheel slip by checking each module's measured wheel speed against
+ * the speed the rest of the drivetrain says it should have. For every module
+ * the chassis translation is estimated from the other modules with rotation
+ * taken from the gyro, then projected back onto that module's wheel
+ * direction.
+ */
+public class SlipEstimator {
+  private final Translation2d[] locations;
+  private final int count;
+
+  // Chassis translation implied by each module once the gyro rotation is removed
+  private final double[] impliedX, impliedY;
+  private final double[] predictedSpeed, slipSpeed;
+  private final boolean[] slipping;
+
+  private final double[] correctedDistance, lastDistance;
+  private final SwerveModulePosition[] correctedPositions;
+  private boolean hasPositions = false;
+
+  public SlipEstimator(Translation2d[] moduleLocations) {
+    locations = moduleLocations;
+    count = moduleLocations.length;
+    impliedX = new double[count];
+    impliedY = new double[count];
+    predictedSpeed = new double[count];
+    slipSpeed = new double[count];
+    slipping = new boolean[count];
+    correctedDistance = new double[count];
+    lastDistance = new double[count];
+    correctedPositions = new SwerveModulePosition[count];
+  }
+
+  /**
+   * @param states Measured module states
+   * @param omega  Gyro yaw rate in radians per second, counter-clockwise positive
+   */
+  public void update(SwerveModuleState[] states, double omega) {
+    double sumX = 0, sumY = 0;
+    for (int i = 0; i < count; i++) {
+      double cos = states[i].angle.getCos();
+      double sin = states[i].angle.getSin();
+      // v_module = v_chassis + omega x r
+      impliedX[i] = states[i].speedMetersPerSecond * cos + omega * locations[i].getY();
+      impliedY[i] = states[i].speedMetersPerSecond * sin - omega * locations[i].getX();
+      sumX += impliedX[i];
+      sumY += impliedY[i];
+    }
+
+    for (int i = 0; i < count; i++) {
+      double chassisX = (sumX - impliedX[i]) / (count - 1);
+      double chassisY = (sumY - impliedY[i]) / (count - 1);
+      double expectedX = chassisX - omega * locations[i].getY();
+      double expectedY = chassisY + omega * locations[i].getX();
+
+      // The wheel only measures speed along its own direction
+      predictedSpeed[i] = expectedX * states[i].angle.getCos() + expectedY * states[i].angle.getSin();
+      slipSpeed[i] = states[i].speedMetersPerSecond - predictedSpeed[i];
+
+      double reference = Math.max(Math.abs(predictedSpeed[i]), DriveMap.SLIP_MIN_SPEED);
+      slipping[i] = Math.abs(slipSpeed[i]) > DriveMap.SLIP_SPEED_TOLERANCE
+          && Math.abs(slipSpeed[i]) / reference > DriveMap.SLIP_RATIO;
+    }
+  }
+
+  /**
+   * Caps a module's commanded speed near what the rest of the drivetrain is
+   * doing while that module is slipping.
+   *
+   * @param module  Module number
+   * @param desired Commanded wheel speed in meters per second
+   * @return Limited wheel speed
+   */
+  public double limitSpeed(int module, double desired) {
+    if (!slipping[module]) {
+      return desired;
+    }
+    double limit = Math.abs(predictedSpeed[module]) + DriveMap.SLIP_SPEED_MARGIN;
+    return Math.copySign(Math.min(Math.abs(desired), limit), desired);
+  }
+
+  /**
+   * Builds module positions for odometry where the distance a slipping module
+   * reports is mostly replaced by the distance it was expected to travel.
+   *
+   * @param positions Measured module positions
+   * @param dt        Seconds since the last call
+   * @return Corrected module positions
+   */
+  public SwerveModulePosition[] correctPositions(SwerveModulePosition[] positions, double dt) {
+    for (int i = 0; i < count; i++) {
+      double measured = positions[i].distanceMeters;
+      if (!hasPositions) {
+        correctedDistance[i] = measured;
+      } else {
+        double delta = measured - lastDistance[i];
+        if (slipping[i]) {
+          double weight = DriveMap.SLIP_ODOMETRY_WEIGHT;
+          delta = weight * delta + (1 - weight) * predictedSpeed[i] * dt;
+        }
+        correctedDistance[i] += delta;
+      }
+      lastDistance[i] = measured;
+      correctedPositions[i] = new SwerveModulePosition(correctedDistance[i], positions[i].angle);
+    }
+    hasPositions = true;
+    return correctedPositions;
+  }
+
+  /**
+   * @return Positions from the last {@link #correctPositions} call, for
+   *         resetting odometry consistently
+   */
+  public SwerveModulePosition[] getCorrectedPositions() {
+    return correctedPositions.clone();
+  }
+
+  public boolean isSlipping(int module) {
+    return slipping[module];
+  }
+
+  /**
+   * @return Measured minus expected wheel speed, in meters per second
+   */
+  public double getSlipSpeed(int module) {
+    return slipSpeed[module];
+  }
+}
@@ -2,6 +2,7 @@ package frc.robot.util;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.DemandType;
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.ctre.phoenix.sensors.CANCoder;
 
@@ -9,41 +10,64 @@ import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Preferences;
+import edu.wpi.first.wpilibj.RobotController;
 import frc.robot.Robot;
 import frc.robot.RobotMap.DriveMap;
+import frc.robot.util.drivers.DeviceFactory;
 
 public class SwerveModule {
   public int moduleNumber;
   private Rotation2d angleOffset;
   private Rotation2d lastAngle;
+  private boolean locked = false;
+  private double holdPosition;
 
   private TalonFX rotator;
   private TalonFX drive;
   private CANCoder angleEncoder;
 
-  SimpleMotorFeedforward feedforward = new SimpleMotorFeedforward(DriveMap.DRIVE_KS, DriveMap.DRIVE_KV,
-      DriveMap.DRIVE_KA);
+  /* Last drive sensor reading, restored if the Falcon resets mid-match */
+  private volatile double lastDriveSensorPosition = 0;
+
+  SimpleMotorFeedforward feedforward;
 
   public SwerveModule(int moduleNumber, SwerveModuleConstants moduleConstants) {
     this.moduleNumber = moduleNumber;
-    this.angleOffset = moduleConstants.angleOffset;
+    feedforward = FeedforwardGains.load("Drive", DriveMap.DRIVE_KS, 0, DriveMap.DRIVE_KV, DriveMap.DRIVE_KA)
+        .toSimpleFeedforward(1 / 12.0);
+
+    /* Calibrated offsets live in Preferences, the RobotMap offset is only the first-boot default */
+    Preferences.initDouble(getOffsetKey(), moduleConstants.angleOffset.getDegrees());
+    this.angleOffset = Rotation2d.fromDegrees(Preferences.getDouble(getOffsetKey(), 0));
 
     /* Angle Encoder Config */
-    angleEncoder = new CANCoder(moduleConstants.encoderId);
-    configAngleEncoder();
+    angleEncoder = DeviceFactory.createCANCoder("Mod " + moduleNumber + " CANCoder", moduleConstants.encoderId,
+        Robot.ctreConfigs.swerveCanCoderConfig, encoder -> {});
 
     /* Angle Motor Config */
-    rotator = new TalonFX(moduleConstants.rotatorId);
-    configAngleMotor();
+    rotator = DeviceFactory.createTalonFX("Mod " + moduleNumber + " Rotator", moduleConstants.rotatorId,
+        Robot.ctreConfigs.swerveAngleFXConfig, this::configAngleMotor);
 
     /* Drive Motor Config */
-    drive = new TalonFX(moduleConstants.driveId);
-    configDriveMotor();
+    drive = DeviceFactory.createTalonFX("Mod " + moduleNumber + " Drive", moduleConstants.driveId,
+        Robot.ctreConfigs.swerveDriveFXConfig, this::configDriveMotor);
+
+    // Group names match the PowerManager consumers that apply the derate
+    ThermalMonitor.getInstance().register("Mod " + moduleNumber + " Rotator", "Steer",
+        ThermalMonitor.MotorType.FALCON, rotator::getStatorCurrent, rotator::getTemperature);
+    ThermalMonitor.getInstance().register("Mod " + moduleNumber + " Drive", "Drive",
+        ThermalMonitor.MotorType.FALCON, drive::getStatorCurrent, drive::getTemperature);
 
     lastAngle = getState().angle;
   }
 
   public void setDesiredState(SwerveModuleState desiredState, boolean isOpenLoop) {
+    if (locked) {
+      locked = false;
+      drive.selectProfileSlot(0, 0);
+    }
+
     /*
      * This is a custom optimize function, since default WPILib optimize assumes
      * continuous controller which CTRE and Rev onboard is not
@@ -81,6 +105,74 @@ public class SwerveModule {
     lastAngle = angle;
   }
 
+  /**
+   * Points the module at an angle and holds the wheel where it was when the
+   * lock started, bypassing the low-speed jitter filter in
+   * {@link #setDesiredState}. The next call to {@link #setDesiredState} releases
+   * the lock.
+   *
+   * @param angle Module angle to hold
+   */
+  public void lock(Rotation2d angle) {
+    if (!locked) {
+      locked = true;
+      holdPosition = drive.getSelectedSensorPosition();
+      drive.selectProfileSlot(1, 0);
+    }
+
+    Rotation2d target = CTREModuleState.optimize(new SwerveModuleState(0, angle), getState().angle).angle;
+    rotator.set(
+        ControlMode.Position,
+        Conversions.degreesToFalcon(target.getDegrees(), DriveMap.ANGLE_GEAR_RATIO));
+    drive.set(ControlMode.Position, holdPosition);
+    lastAngle = target;
+  }
+
+  /**
+   * Points the module forward and drives it open loop at a voltage, for
+   * characterization.
+   *
+   * @param volts Drive motor voltage
+   */
+  public void setDriveVoltage(double volts) {
+    if (locked) {
+      locked = false;
+      drive.selectProfileSlot(0, 0);
+    }
+    setAngle(new SwerveModuleState(DriveMap.MAX_VELOCITY, new Rotation2d()));
+    drive.set(ControlMode.PercentOutput, volts / RobotController.getBatteryVoltage());
+  }
+
+  public void configDrivePID(TunableGains gains) {
+    gains.apply(drive, 0);
+    // Keep the config re-applied after a reset in step with tuning
+    gains.apply(Robot.ctreConfigs.swerveDriveFXConfig.slot0);
+  }
+
+  /**
+   * Changes the drive supply limit without waiting for the Falcon to ack, so
+   * it's safe to call from the main loop.
+   */
+  public void setDriveCurrentLimit(SupplyCurrentLimitConfiguration limit) {
+    drive.configSupplyCurrentLimit(limit, 0);
+  }
+
+  /**
+   * Changes the rotator supply limit without waiting for the Falcon to ack.
+   */
+  public void setRotatorCurrentLimit(SupplyCurrentLimitConfiguration limit) {
+    rotator.configSupplyCurrentLimit(limit, 0);
+  }
+
+  public void configRotatorPID(TunableGains gains) {
+    gains.apply(rotator, 0);
+    gains.apply(Robot.ctreConfigs.swerveAngleFXConfig.slot0);
+  }
+
+  public boolean isLocked() {
+    return locked;
+  }
+
   private Rotation2d getAngle() {
     return Rotation2d.fromDegrees(
         Conversions.falconToDegrees(
@@ -92,30 +184,66 @@ public class SwerveModule {
   }
 
   public void resetToAbsolute() {
-    double absolutePosition = Conversions.degreesToFalcon(getCanCoder().getDegrees() - angleOffset.getDegrees(),
+    rotator.setSelectedSensorPosition(getAbsoluteSensorPosition());
+  }
+
+  private double getAbsoluteSensorPosition() {
+    return Conversions.degreesToFalcon(getCanCoder().getDegrees() - angleOffset.getDegrees(),
         DriveMap.ANGLE_GEAR_RATIO);
-    rotator.setSelectedSensorPosition(absolutePosition);
   }
 
-  private void configAngleEncoder() {
-    angleEncoder.configFactoryDefault();
-    angleEncoder.configAllSettings(Robot.ctreConfigs.swerveCanCoderConfig);
+  /**
+   * Re-seeds the integrated sensor from the CANCoder only if the two disagree
+   * by more than {@link DriveMap#ABSOLUTE_RESEED_THRESHOLD}, so an idle robot
+   * doesn't write to the Falcon every loop.
+   *
+   * @return true if the module was re-seeded
+   */
+  public boolean resetToAbsoluteIfDiverged() {
+    if (Math.abs(getAbsoluteError().getDegrees()) <= DriveMap.ABSOLUTE_RESEED_THRESHOLD) {
+      return false;
+    }
+    resetToAbsolute();
+    return true;
+  }
+
+  /**
+   * @return Integrated angle minus absolute angle, wrapped to (-180, 180]
+   */
+  public Rotation2d getAbsoluteError() {
+    return getAngle().minus(getCanCoder().minus(angleOffset));
   }
 
-  private void configAngleMotor() {
-    rotator.configFactoryDefault();
-    rotator.configAllSettings(Robot.ctreConfigs.swerveAngleFXConfig);
-    rotator.setInverted(DriveMap.ANGLE_MOTOR_INVERT);
-    rotator.setNeutralMode(DriveMap.ROTATOR_NEUTRAL_MODE);
+  /**
+   * Takes the current CANCoder reading as this module's zero and saves it to
+   * Preferences. Run with the wheel pointed straight forward.
+   */
+  public void calibrateOffset() {
+    angleOffset = getCanCoder();
+    Preferences.setDouble(getOffsetKey(), angleOffset.getDegrees());
     resetToAbsolute();
   }
 
-  private void configDriveMotor() {
-    drive.configFactoryDefault();
-    drive.configAllSettings(Robot.ctreConfigs.swerveDriveFXConfig);
-    drive.setInverted(DriveMap.DRIVE_MOTOR_INVERT);
-    drive.setNeutralMode(DriveMap.DRIVE_NEUTRAL_MODE);
-    drive.setSelectedSensorPosition(0);
+  public Rotation2d getAngleOffset() {
+    return angleOffset;
+  }
+
+  private String getOffsetKey() {
+    return "Mod " + moduleNumber + " Offset";
+  }
+
+  /* Runs on creation and again if the motor resets */
+  private void configAngleMotor(TalonFX motor) {
+    motor.setInverted(DriveMap.ANGLE_MOTOR_INVERT);
+    motor.setNeutralMode(DriveMap.ROTATOR_NEUTRAL_MODE);
+    motor.setSelectedSensorPosition(getAbsoluteSensorPosition());
+  }
+
+  private void configDriveMotor(TalonFX motor) {
+    motor.setInverted(DriveMap.DRIVE_MOTOR_INVERT);
+    motor.setNeutralMode(DriveMap.DRIVE_NEUTRAL_MODE);
+    // Zero on boot, otherwise pick up where odometry left off
+    motor.setSelectedSensorPosition(lastDriveSensorPosition);
   }
 
   public SwerveModuleState getState() {
@@ -128,11 +256,12 @@ public class SwerveModule {
   }
 
   public SwerveModulePosition getPosition() {
+    lastDriveSensorPosition = drive.getSelectedSensorPosition();
     return new SwerveModulePosition(
         Conversions.falconToMeters(
-            drive.getSelectedSensorPosition(),
+            lastDriveSensorPosition,
             DriveMap.WHEEL_CIRCUMFERENCE,
             DriveMap.DRIVE_GEAR_RATIO),
         getAngle());
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,212 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+import frc.robot.Config;
+import frc.robot.RobotMap.ThermalMap;
+
+/**
+ * Estimates motor temperatures so mechanisms can be derated before the
+ * controllers' own thermal protection cuts them off.
+ *
+ * Each motor is a first order model heated by copper losses from its stator
+ * current and cooling towards ambient. The controller's temperature reading is
+ * coarse and only updates a few times a second, so the model runs every loop
+ * and is pulled towards the reading over
+ * {@link ThermalMap#CORRECTION_TIME_CONSTANT}.
+ *
+ * Motors are grouped by mechanism. A group's derate comes from its hottest
+ * motor's temperature {@link ThermalMap#PREDICTION_HORIZON} seconds ahead at
+ * its current heating, falling smoothly from 1 to
+ * {@link ThermalMap#MIN_DERATE} as that approaches the limit. The
+ * {@link PowerManager} scales the group's current limits by it.
+ */
+public class ThermalMonitor {
+  private static ThermalMonitor instance;
+
+  public static ThermalMonitor getInstance() {
+    if (instance == null)
+      instance = new ThermalMonitor();
+    return instance;
+  }
+
+  public enum MotorType {
+    FALCON(ThermalMap.FALCON_RESISTANCE, ThermalMap.FALCON_THERMAL_RESISTANCE, ThermalMap.FALCON_TIME_CONSTANT,
+        ThermalMap.FALCON_LIMIT),
+    NEO(ThermalMap.NEO_RESISTANCE, ThermalMap.NEO_THERMAL_RESISTANCE, ThermalMap.NEO_TIME_CONSTANT,
+        ThermalMap.NEO_LIMIT);
+
+    final double resistance, thermalResistance, timeConstant, limit;
+
+    MotorType(double resistance, double thermalResistance, double timeConstant, double limit) {
+      this.resistance = resistance;
+      this.thermalResistance = thermalResistance;
+      this.timeConstant = timeConstant;
+      this.limit = limit;
+    }
+  }
+
+  static class Motor {
+    final String name, group;
+    final MotorType type;
+    final DoubleSupplier statorCurrent, temperature;
+    final LinearFilter powerFilter = LinearFilter.singlePoleIIR(ThermalMap.POWER_TIME_CONSTANT, 0.02);
+
+    double estimate = Double.NaN;
+    double power = 0;
+    double peak = 0;
+    double derate = 1;
+
+    GenericEntry estimateEntry, timeToLimitEntry, derateEntry, peakEntry;
+    DoubleLogEntry estimateLog, measuredLog, derateLog;
+
+    Motor(String name, String group, MotorType type, DoubleSupplier statorCurrent, DoubleSupplier temperature) {
+      this.name = name;
+      this.group = group;
+      this.type = type;
+      this.statorCurrent = statorCurrent;
+      this.temperature = temperature;
+    }
+
+    void update(double dt) {
+      double measured = temperature.getAsDouble();
+      double current = statorCurrent.getAsDouble();
+      if (Double.isNaN(estimate)) {
+        estimate = measured > 0 ? measured : ThermalMap.AMBIENT_TEMPERATURE;
+      }
+
+      power = powerFilter.calculate(current * current * type.resistance);
+      double heating = current * current * type.resistance * type.thermalResistance;
+      estimate += (heating - (estimate - ThermalMap.AMBIENT_TEMPERATURE)) * dt / type.timeConstant;
+      // A controller that hasn't reported yet reads 0
+      if (measured > 0) {
+        estimate += (measured - estimate) * dt / ThermalMap.CORRECTION_TIME_CONSTANT;
+      }
+      peak = Math.max(peak, estimate);
+
+      double start = type.limit - ThermalMap.DERATE_START_MARGIN;
+      double end = type.limit - ThermalMap.DERATE_END_MARGIN;
+      double predicted = Math.max(estimate, predict(ThermalMap.PREDICTION_HORIZON));
+      derate = 1 - (1 - ThermalMap.MIN_DERATE) * MathUtil.clamp((predicted - start) / (end - start), 0, 1);
+    }
+
+    /**
+     * @return Temperature after some seconds at the current smoothed heating
+     */
+    double predict(double seconds) {
+      double steady = getSteadyState();
+      return steady + (estimate - steady) * Math.exp(-seconds / type.timeConstant);
+    }
+
+    double getSteadyState() {
+      return ThermalMap.AMBIENT_TEMPERATURE + power * type.thermalResistance;
+    }
+
+    /**
+     * @return Seconds until the limit at the current smoothed heating, capped at
+     *         {@link ThermalMap#MAX_TIME_TO_LIMIT}
+     */
+    double getTimeToLimit() {
+      if (estimate >= type.limit) {
+        return 0;
+      }
+      double steady = getSteadyState();
+      if (steady <= type.limit) {
+        return ThermalMap.MAX_TIME_TO_LIMIT;
+      }
+      double time = -type.timeConstant * Math.log((steady - type.limit) / (steady - estimate));
+      return Math.min(time, ThermalMap.MAX_TIME_TO_LIMIT);
+    }
+  }
+
+  private final List<Motor> motors = new ArrayList<>();
+  private final Map<String, Double> groupDerates = new HashMap<>();
+  private final ShuffleboardTab thermalTab = Shuffleboard.getTab("Thermal");
+  private double lastUpdateTime = Double.NaN;
+  private double lastPublishTime = 0;
+
+  private ThermalMonitor() {
+  }
+
+  /**
+   * @param group         Mechanism the motor belongs to, matching its
+   *                      {@link PowerManager} consumer name
+   * @param statorCurrent Amps through the windings
+   * @param temperature   Controller reported motor temperature in Celsius
+   */
+  public void register(String name, String group, MotorType type, DoubleSupplier statorCurrent,
+      DoubleSupplier temperature) {
+    Motor motor = new Motor(name, group, type, statorCurrent, temperature);
+    motor.estimateEntry = thermalTab.add(name + " Temp", 0.0).getEntry();
+    motor.timeToLimitEntry = thermalTab.add(name + " Time To Limit", ThermalMap.MAX_TIME_TO_LIMIT).getEntry();
+    motor.derateEntry = thermalTab.add(name + " Derate", 1.0).getEntry();
+    motor.peakEntry = thermalTab.add(name + " Peak Temp", 0.0).getEntry();
+
+    // Getting the log starts DataLogManager, which records all of
+    // NetworkTables, so only when asked for
+    if (Config.Logging.RECORD_THERMALS) {
+      DataLog log = DataLogManager.getLog();
+      String prefix = "/Thermal/" + name + "/";
+      motor.estimateLog = new DoubleLogEntry(log, prefix + "Estimate");
+      motor.measuredLog = new DoubleLogEntry(log, prefix + "Measured");
+      motor.derateLog = new DoubleLogEntry(log, prefix + "Derate");
+    }
+
+    motors.add(motor);
+    groupDerates.putIfAbsent(group, 1.0);
+  }
+
+  /**
+   * @return Fraction of its usual current the group should get, 1 if it isn't
+   *         monitored
+   */
+  public double getDerate(String group) {
+    return groupDerates.getOrDefault(group, 1.0);
+  }
+
+  /**
+   * Steps every model. Call once per loop, before the power manager.
+   */
+  public void update() {
+    double now = Timer.getFPGATimestamp();
+    double dt = Double.isNaN(lastUpdateTime) ? 0.02 : now - lastUpdateTime;
+    lastUpdateTime = now;
+
+    for (String group : groupDerates.keySet()) {
+      groupDerates.put(group, 1.0);
+    }
+    for (Motor motor : motors) {
+      motor.update(dt);
+      groupDerates.merge(motor.group, motor.derate, Math::min);
+    }
+
+    if (now - lastPublishTime < ThermalMap.PUBLISH_PERIOD) {
+      return;
+    }
+    lastPublishTime = now;
+    for (Motor motor : motors) {
+      motor.estimateEntry.setDouble(motor.estimate);
+      motor.timeToLimitEntry.setDouble(motor.getTimeToLimit());
+      motor.derateEntry.setDouble(motor.derate);
+      motor.peakEntry.setDouble(motor.peak);
+      if (motor.estimateLog != null) {
+        motor.estimateLog.append(motor.estimate);
+        motor.measuredLog.append(motor.temperature.getAsDouble());
+        motor.derateLog.append(motor.derate);
+      }
+    }
+  }
+}
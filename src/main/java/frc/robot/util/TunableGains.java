@@ -0,0 +1,181 @@
+package frc.robot.util;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+import com.ctre.phoenix.motorcontrol.can.SlotConfiguration;
+import com.revrobotics.SparkMaxPIDController;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Preferences;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.RobotMap.TuningMap;
+
+/**
+ * A named group of gains that can be edited live from the dashboard. Values
+ * are stored in {@link Preferences}, so an edit is kept across reboots, and
+ * listeners are only called when a value in the group actually changes, so
+ * controllers aren't reconfigured over CAN every loop.
+ *
+ * Groups register themselves on construction and are polled by
+ * {@link #updateAll()} from robotPeriodic.
+ */
+public class TunableGains {
+  private static final ArrayList<TunableGains> registry = new ArrayList<>();
+  private static double lastUpdateTime = 0;
+
+  private final String name;
+  private final String[] gains;
+  private final double[] values;
+  private final ArrayList<Consumer<TunableGains>> listeners = new ArrayList<>();
+
+  /**
+   * @param name     Group name, used as the Preferences key prefix
+   * @param gains    Gain names within the group
+   * @param defaults Values used until the gain is edited
+   */
+  public TunableGains(String name, String[] gains, double[] defaults) {
+    this.name = name;
+    this.gains = gains;
+    this.values = new double[gains.length];
+
+    for (int i = 0; i < gains.length; i++) {
+      Preferences.initDouble(getKey(i), defaults[i]);
+      values[i] = Preferences.getDouble(getKey(i), defaults[i]);
+    }
+    registry.add(this);
+  }
+
+  public static TunableGains pid(String name, double kP, double kI, double kD) {
+    return new TunableGains(name, new String[] { "kP", "kI", "kD" }, new double[] { kP, kI, kD });
+  }
+
+  private String getKey(int index) {
+    return name + " " + gains[index];
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public double get(String gain) {
+    for (int i = 0; i < gains.length; i++) {
+      if (gains[i].equals(gain)) {
+        return values[i];
+      }
+    }
+    throw new IllegalArgumentException(name + " has no gain " + gain);
+  }
+
+  public double kP() {
+    return get("kP");
+  }
+
+  public double kI() {
+    return get("kI");
+  }
+
+  public double kD() {
+    return get("kD");
+  }
+
+  /**
+   * Adds a listener and calls it right away so the stored values are applied
+   * at startup.
+   */
+  public TunableGains onChange(Consumer<TunableGains> listener) {
+    listeners.add(listener);
+    listener.accept(this);
+    return this;
+  }
+
+  /**
+   * @return A new controller with the current gains
+   */
+  public PIDController newController() {
+    return new PIDController(kP(), kI(), kD());
+  }
+
+  public void apply(PIDController controller) {
+    controller.setPID(kP(), kI(), kD());
+  }
+
+  public void apply(BaseMotorController motor, int slot) {
+    motor.config_kP(slot, kP());
+    motor.config_kI(slot, kI());
+    motor.config_kD(slot, kD());
+  }
+
+  public void apply(SlotConfiguration slot) {
+    slot.kP = kP();
+    slot.kI = kI();
+    slot.kD = kD();
+  }
+
+  public void apply(SparkMaxPIDController controller) {
+    controller.setP(kP());
+    controller.setI(kI());
+    controller.setD(kD());
+  }
+
+  private boolean poll() {
+    boolean changed = false;
+    for (int i = 0; i < gains.length; i++) {
+      double value = Preferences.getDouble(getKey(i), values[i]);
+      if (value != values[i]) {
+        values[i] = value;
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Checks every group for edits and notifies the listeners of the ones that
+   * changed. Skipped on the field, where nobody should be tuning.
+   */
+  public static void updateAll() {
+    double now = Timer.getFPGATimestamp();
+    if (DriverStation.isFMSAttached() || now - lastUpdateTime < TuningMap.UPDATE_PERIOD) {
+      return;
+    }
+    lastUpdateTime = now;
+
+    for (TunableGains group : registry) {
+      if (group.poll()) {
+        for (Consumer<TunableGains> listener : group.listeners) {
+          listener.accept(group);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes every registered gain to a timestamped file in the deploy
+   * directory's parent, so a set of gains that worked can be copied back into
+   * RobotMap.
+   */
+  public static void snapshot() {
+    String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    String path = Filesystem.getOperatingDirectory() + "/gains-" + time + ".properties";
+
+    try (PrintWriter writer = new PrintWriter(new FileWriter(path))) {
+      for (TunableGains group : registry) {
+        for (int i = 0; i < group.gains.length; i++) {
+          writer.println(group.getKey(i).replace(' ', '.') + "=" + group.values[i]);
+        }
+      }
+      DriverStation.reportWarning("Saved gains to " + path, false);
+    } catch (IOException e) {
+      DriverStation.reportError("Could not save gains: " + e.getMessage(), false);
+    }
+  }
+}
@@ -11,6 +11,19 @@ public interface ButtonMap {
 
   public HashMap<Dpad, Integer> dpadMap();
 
+  /**
+   * Flattens one of the maps above into a table indexed by enum ordinal, so
+   * lookups don't box or hash. Unmapped entries are -1.
+   */
+  public static <E extends Enum<E>> int[] compile(HashMap<E, Integer> map, E[] values) {
+    int[] table = new int[values.length];
+    for (E value : values) {
+      Integer port = map.get(value);
+      table[value.ordinal()] = (port == null) ? -1 : port;
+    }
+    return table;
+  }
+
   // Joystick Buttons
   public enum Axis {
     AXIS_LEFT_X,
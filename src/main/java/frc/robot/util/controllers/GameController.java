@@ -1,35 +1,159 @@
 package frc.robot.util.controllers;
 
+import java.util.Arrays;
+
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
+import edu.wpi.first.wpilibj2.command.button.POVButton;
 import frc.robot.util.MathUtils;
 
+/**
+ * Joystick whose inputs are sampled once per loop by {@link #update()}. Every
+ * raw read, including the ones the command scheduler makes for bound buttons,
+ * comes from that snapshot, so all commands in a loop see the same inputs.
+ */
 public class GameController extends Joystick {
   private final double DEADZONE = 0.1;
 
-  private ButtonMap map;
+  /* Snapshot of the driver station data, taken by update() */
+  private final double[] rawAxes = new double[DriverStation.kMaxJoystickAxes];
+  private int axisCount = 0;
+  private int buttonStates = 0;
+  private int pov = -1;
+  private double timestamp = 0;
+
+  /* Per-axis values computed once per snapshot, by Axis ordinal */
+  private final double[] deadbandedAxes, curvedAxes;
+
+  private DoubleArrayLogEntry axisLog;
+  private IntegerLogEntry buttonLog, povLog;
+
+  /* Port numbers by enum ordinal, compiled once from the ButtonMap */
+  private final int[] buttons, triggers, axes, dpads;
+  private final JoystickButton[] buttonCache;
+  private final POVButton[] dpadCache;
 
   public GameController(int gamepadPort, ButtonMap map) {
     super(gamepadPort);
-    this.map = map;
+    buttons = ButtonMap.compile(map.buttonMap(), ButtonMap.Button.values());
+    triggers = ButtonMap.compile(map.triggerMap(), ButtonMap.Trigger.values());
+    axes = ButtonMap.compile(map.axisMap(), ButtonMap.Axis.values());
+    dpads = ButtonMap.compile(map.dpadMap(), ButtonMap.Dpad.values());
+    buttonCache = new JoystickButton[buttons.length];
+    dpadCache = new POVButton[dpads.length];
+    deadbandedAxes = new double[axes.length];
+    curvedAxes = new double[axes.length];
+  }
+
+  /**
+   * Samples the controller. Call once at the start of every loop, before the
+   * command scheduler runs.
+   */
+  public void update() {
+    int port = getPort();
+    timestamp = Timer.getFPGATimestamp();
+    axisCount = Math.min(DriverStation.getStickAxisCount(port), rawAxes.length);
+    for (int i = 0; i < axisCount; i++) {
+      rawAxes[i] = DriverStation.getStickAxis(port, i);
+    }
+    buttonStates = DriverStation.getStickButtons(port);
+    pov = (DriverStation.getStickPOVCount(port) > 0) ? DriverStation.getStickPOV(port, 0) : -1;
+
+    for (int i = 0; i < axes.length; i++) {
+      double value = (axes[i] < 0) ? 0 : getRawAxis(axes[i]);
+      deadbandedAxes[i] = MathUtils.deadband(value, DEADZONE);
+      curvedAxes[i] = MathUtils.signSquare(deadbandedAxes[i]);
+    }
+
+    if (axisLog != null) {
+      long time = (long) (timestamp * 1e6);
+      axisLog.append(Arrays.copyOf(rawAxes, axisCount), time);
+      buttonLog.append(buttonStates, time);
+      povLog.append(pov, time);
+    }
+  }
+
+  /**
+   * Logs every snapshot to the on-robot data log so a match's inputs can be
+   * replayed.
+   */
+  public void startRecording() {
+    if (axisLog != null) {
+      return;
+    }
+    var log = DataLogManager.getLog();
+    String prefix = "/Inputs/Controller" + getPort() + "/";
+    axisLog = new DoubleArrayLogEntry(log, prefix + "Axes");
+    buttonLog = new IntegerLogEntry(log, prefix + "Buttons");
+    povLog = new IntegerLogEntry(log, prefix + "POV");
+  }
+
+  /**
+   * @return FPGA time in seconds the current snapshot was taken
+   */
+  public double getSnapshotTime() {
+    return timestamp;
+  }
+
+  @Override
+  public double getRawAxis(int axis) {
+    return (axis >= 0 && axis < axisCount) ? rawAxes[axis] : 0.0;
+  }
+
+  @Override
+  public boolean getRawButton(int button) {
+    return button > 0 && (buttonStates & (1 << (button - 1))) != 0;
+  }
+
+  @Override
+  public int getPOV(int pov) {
+    return (pov == 0) ? this.pov : -1;
+  }
+
+  private static int lookup(int[] table, Enum<?> input) {
+    int port = table[input.ordinal()];
+    if (port < 0) {
+      throw new IllegalArgumentException(input + " is not mapped on this controller");
+    }
+    return port;
   }
 
   public JoystickButton getButton(ButtonMap.Button button) {
-    return new JoystickButton(this, map.buttonMap().get(button));
+    int i = button.ordinal();
+    if (buttonCache[i] == null) {
+      buttonCache[i] = new JoystickButton(this, lookup(buttons, button));
+    }
+    return buttonCache[i];
   }
 
-  public JoystickButton getDpad(ButtonMap.Dpad dpad) {
-    return new JoystickButton(this, map.dpadMap().get(dpad));
+  public POVButton getDpad(ButtonMap.Dpad dpad) {
+    int i = dpad.ordinal();
+    if (dpadCache[i] == null) {
+      dpadCache[i] = new POVButton(this, lookup(dpads, dpad));
+    }
+    return dpadCache[i];
   }
 
   public double getAxis(ButtonMap.Axis axis) {
-    double value = this.getRawAxis(map.axisMap().get(axis));
+    lookup(axes, axis);
+    return curvedAxes[axis.ordinal()];
+  }
 
-    return MathUtils.signSquare(MathUtils.deadband(value, DEADZONE));
+  /**
+   * @return Axis value with the deadzone removed but no curve applied
+   */
+  public double getDeadbandedAxis(ButtonMap.Axis axis) {
+    lookup(axes, axis);
+    return deadbandedAxes[axis.ordinal()];
   }
 
   public double getTrigger(ButtonMap.Trigger trigger) {
-    return this.getRawAxis(map.triggerMap().get(trigger));
+    return this.getRawAxis(lookup(triggers, trigger));
   }
 
   public int getDpadAngle() {
@@ -0,0 +1,283 @@
+package frc.robot.util.drivers;
+
+import java.util.function.Consumer;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.Faults;
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
+import com.ctre.phoenix.motorcontrol.can.SlotConfiguration;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
+import com.ctre.phoenix.sensors.CANCoder;
+import com.ctre.phoenix.sensors.CANCoderConfiguration;
+import com.ctre.phoenix.sensors.CANCoderFaults;
+import com.ctre.phoenix.sensors.Pigeon2_Faults;
+import com.ctre.phoenix.sensors.WPI_Pigeon2;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMax.FaultID;
+import com.revrobotics.REVLibError;
+
+import frc.robot.RobotMap.CANMap;
+
+/**
+ * Creates TalonFX, CANCoder, Pigeon2 and SPARK MAX objects and registers them
+ * with the {@link DeviceMonitor}. The intended config is kept per device; if
+ * the device resets, the monitor thread reads the config back, re-applies only
+ * the parameters that differ and reruns the setup callback.
+ *
+ * The setup callback holds everything the device doesn't keep across a reset:
+ * status frame periods, inversion, neutral mode and sensor positions. It runs
+ * once on creation and again after every reset, so it must only touch the
+ * device passed to it.
+ */
+public class DeviceFactory {
+
+  private static final int kTimeoutMs = CANMap.CONFIG_TIMEOUT_MS;
+
+  public static TalonFX createTalonFX(String name, int id, TalonFXConfiguration config, Consumer<TalonFX> setup) {
+    TalonFX talon = new TalonFX(id);
+    TalonSRXUtil.checkError(talon.configFactoryDefault(kTimeoutMs), "Could not reset " + name + ": ");
+    TalonSRXUtil.checkError(talon.configAllSettings(config, kTimeoutMs), "Could not configure " + name + ": ");
+    setup.accept(talon);
+    // Boot counts as a reset, clear it
+    talon.hasResetOccurred();
+    DeviceMonitor.getInstance().register(new ManagedTalonFX(name, talon, config, setup));
+    return talon;
+  }
+
+  public static CANCoder createCANCoder(String name, int id, CANCoderConfiguration config, Consumer<CANCoder> setup) {
+    CANCoder encoder = new CANCoder(id);
+    TalonSRXUtil.checkError(encoder.configFactoryDefault(kTimeoutMs), "Could not reset " + name + ": ");
+    TalonSRXUtil.checkError(encoder.configAllSettings(config, kTimeoutMs), "Could not configure " + name + ": ");
+    setup.accept(encoder);
+    encoder.hasResetOccurred();
+    DeviceMonitor.getInstance().register(new ManagedCANCoder(name, encoder, config, setup));
+    return encoder;
+  }
+
+  public static WPI_Pigeon2 createPigeon2(String name, int id, Consumer<WPI_Pigeon2> setup) {
+    WPI_Pigeon2 pigeon = new WPI_Pigeon2(id);
+    TalonSRXUtil.checkError(pigeon.configFactoryDefault(kTimeoutMs), "Could not reset " + name + ": ");
+    setup.accept(pigeon);
+    pigeon.hasResetOccurred();
+    DeviceMonitor.getInstance().register(new ManagedDevice(name) {
+      @Override
+      protected boolean hasReset() {
+        return pigeon.hasResetOccurred();
+      }
+
+      @Override
+      protected int reapply() {
+        setup.accept(pigeon);
+        return 0;
+      }
+
+      private final Pigeon2_Faults faults = new Pigeon2_Faults();
+
+      @Override
+      protected String checkHealth() {
+        ErrorCode error = pigeon.getFaults(faults);
+        return describeHealth(error == ErrorCode.OK ? null : error.name(), faults.toBitfield());
+      }
+
+      @Override
+      protected String getFirmwareVersion() {
+        return phoenixVersion(pigeon.getFirmwareVersion());
+      }
+    });
+    return pigeon;
+  }
+
+  /**
+   * SPARK MAX parameters saved with burnFlash survive a reset on their own, so
+   * only the status frame profile and the setup callback are re-applied.
+   */
+  public static CANSparkMax createSparkMax(String name, int id, SparkMaxFactory.Configuration profile,
+      Consumer<CANSparkMax> setup) {
+    CANSparkMax spark = SparkMaxFactory.createSparkMax(id, profile);
+    setup.accept(spark);
+    SparkMaxUtil.checkError(spark.clearFaults(), "Could not clear " + name + " faults: ");
+    DeviceMonitor.getInstance().register(new ManagedDevice(name) {
+      @Override
+      protected boolean hasReset() {
+        if (!spark.getStickyFault(FaultID.kHasReset)) {
+          return false;
+        }
+        spark.clearFaults();
+        return true;
+      }
+
+      @Override
+      protected int reapply() {
+        SparkMaxFactory.configureStatusFrames(spark, profile);
+        setup.accept(spark);
+        // Status 0 through 6
+        return 7;
+      }
+
+      @Override
+      protected String checkHealth() {
+        REVLibError error = spark.getLastError();
+        return describeHealth(error == REVLibError.kOk ? null : error.name(), spark.getFaults() & 0xffff);
+      }
+
+      @Override
+      protected String getFirmwareVersion() {
+        String version = spark.getFirmwareString();
+        return version == null || version.isEmpty() ? null : version;
+      }
+    });
+    return spark;
+  }
+
+  private static class ManagedTalonFX extends ManagedDevice {
+    private final TalonFX talon;
+    private final TalonFXConfiguration intended;
+    private final TalonFXConfiguration actual = new TalonFXConfiguration();
+    private final Faults faults = new Faults();
+    private final Consumer<TalonFX> setup;
+
+    ManagedTalonFX(String name, TalonFX talon, TalonFXConfiguration intended, Consumer<TalonFX> setup) {
+      super(name);
+      this.talon = talon;
+      this.intended = intended;
+      this.setup = setup;
+    }
+
+    @Override
+    protected boolean hasReset() {
+      return talon.hasResetOccurred();
+    }
+
+    @Override
+    protected int reapply() {
+      if (talon.getAllConfigs(actual, kTimeoutMs) != ErrorCode.OK) {
+        return -1;
+      }
+
+      int changed = 0;
+      changed += reapplySlot(0, actual.slot0, intended.slot0);
+      changed += reapplySlot(1, actual.slot1, intended.slot1);
+      if (differs(actual.openloopRamp, intended.openloopRamp)) {
+        talon.configOpenloopRamp(intended.openloopRamp, kTimeoutMs);
+        changed++;
+      }
+      if (differs(actual.closedloopRamp, intended.closedloopRamp)) {
+        talon.configClosedloopRamp(intended.closedloopRamp, kTimeoutMs);
+        changed++;
+      }
+      SupplyCurrentLimitConfiguration limit = intended.supplyCurrLimit;
+      if (actual.supplyCurrLimit.enable != limit.enable
+          || differs(actual.supplyCurrLimit.currentLimit, limit.currentLimit)
+          || differs(actual.supplyCurrLimit.triggerThresholdCurrent, limit.triggerThresholdCurrent)
+          || differs(actual.supplyCurrLimit.triggerThresholdTime, limit.triggerThresholdTime)) {
+        talon.configSupplyCurrentLimit(limit, kTimeoutMs);
+        changed++;
+      }
+
+      setup.accept(talon);
+      return changed;
+    }
+
+    @Override
+    protected String checkHealth() {
+      ErrorCode error = talon.getFaults(faults);
+      return describeHealth(error == ErrorCode.OK ? null : error.name(), faults.toBitfield());
+    }
+
+    @Override
+    protected String getFirmwareVersion() {
+      return phoenixVersion(talon.getFirmwareVersion());
+    }
+
+    private int reapplySlot(int slot, SlotConfiguration actual, SlotConfiguration intended) {
+      int changed = 0;
+      if (differs(actual.kP, intended.kP)) {
+        talon.config_kP(slot, intended.kP, kTimeoutMs);
+        changed++;
+      }
+      if (differs(actual.kI, intended.kI)) {
+        talon.config_kI(slot, intended.kI, kTimeoutMs);
+        changed++;
+      }
+      if (differs(actual.kD, intended.kD)) {
+        talon.config_kD(slot, intended.kD, kTimeoutMs);
+        changed++;
+      }
+      if (differs(actual.kF, intended.kF)) {
+        talon.config_kF(slot, intended.kF, kTimeoutMs);
+        changed++;
+      }
+      if (differs(actual.integralZone, intended.integralZone)) {
+        talon.config_IntegralZone(slot, intended.integralZone, kTimeoutMs);
+        changed++;
+      }
+      return changed;
+    }
+  }
+
+  private static class ManagedCANCoder extends ManagedDevice {
+    private final CANCoder encoder;
+    private final CANCoderConfiguration intended;
+    private final CANCoderConfiguration actual = new CANCoderConfiguration();
+    private final CANCoderFaults faults = new CANCoderFaults();
+    private final Consumer<CANCoder> setup;
+
+    ManagedCANCoder(String name, CANCoder encoder, CANCoderConfiguration intended, Consumer<CANCoder> setup) {
+      super(name);
+      this.encoder = encoder;
+      this.intended = intended;
+      this.setup = setup;
+    }
+
+    @Override
+    protected boolean hasReset() {
+      return encoder.hasResetOccurred();
+    }
+
+    @Override
+    protected int reapply() {
+      if (encoder.getAllConfigs(actual, kTimeoutMs) != ErrorCode.OK) {
+        return -1;
+      }
+
+      int changed = 0;
+      if (actual.absoluteSensorRange != intended.absoluteSensorRange) {
+        encoder.configAbsoluteSensorRange(intended.absoluteSensorRange, kTimeoutMs);
+        changed++;
+      }
+      if (actual.sensorDirection != intended.sensorDirection) {
+        encoder.configSensorDirection(intended.sensorDirection, kTimeoutMs);
+        changed++;
+      }
+      if (actual.initializationStrategy != intended.initializationStrategy) {
+        encoder.configSensorInitializationStrategy(intended.initializationStrategy, kTimeoutMs);
+        changed++;
+      }
+      if (differs(actual.magnetOffsetDegrees, intended.magnetOffsetDegrees)) {
+        encoder.configMagnetOffset(intended.magnetOffsetDegrees, kTimeoutMs);
+        changed++;
+      }
+      if (actual.sensorTimeBase != intended.sensorTimeBase
+          || differs(actual.sensorCoefficient, intended.sensorCoefficient)) {
+        encoder.configFeedbackCoefficient(intended.sensorCoefficient, intended.unitString,
+            intended.sensorTimeBase, kTimeoutMs);
+        changed++;
+      }
+
+      setup.accept(encoder);
+      return changed;
+    }
+
+    @Override
+    protected String checkHealth() {
+      ErrorCode error = encoder.getFaults(faults);
+      return describeHealth(error == ErrorCode.OK ? null : error.name(), faults.toBitfield());
+    }
+
+    @Override
+    protected String getFirmwareVersion() {
+      return phoenixVersion(encoder.getFirmwareVersion());
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package frc.robot.util.drivers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+import frc.robot.RobotMap.CANMap;
+
+/**
+ * Watches the CAN bus and every {@link ManagedDevice} on a {@link Notifier}
+ * thread, so reading configs back, re-applying them and sampling health never
+ * block the main loop.
+ *
+ * Devices are checked for resets every {@link CANMap#RESET_CHECK_PERIOD}. At
+ * the slower {@link CANMap#HEALTH_PERIOD} the bus status and each device's
+ * faults and firmware are sampled, and a summary over the last
+ * {@link CANMap#HEALTH_WINDOW} samples is published to the CAN tab.
+ */
+public class DeviceMonitor {
+  private static DeviceMonitor instance;
+
+  public static synchronized DeviceMonitor getInstance() {
+    if (instance == null)
+      instance = new DeviceMonitor();
+    return instance;
+  }
+
+  /**
+   * Fixed-size window of samples, overwriting the oldest.
+   */
+  private static class Window {
+    private final double[] samples = new double[CANMap.HEALTH_WINDOW];
+    private int next = 0, count = 0;
+
+    void add(double sample) {
+      samples[next] = sample;
+      next = (next + 1) % samples.length;
+      count = Math.min(count + 1, samples.length);
+    }
+
+    double sum() {
+      double sum = 0;
+      for (int i = 0; i < count; i++) {
+        sum += samples[i];
+      }
+      return sum;
+    }
+
+    double mean() {
+      return count == 0 ? 0 : sum() / count;
+    }
+
+    double max() {
+      double max = 0;
+      for (int i = 0; i < count; i++) {
+        max = Math.max(max, samples[i]);
+      }
+      return max;
+    }
+  }
+
+  private final List<ManagedDevice> devices = new CopyOnWriteArrayList<>();
+  private final Notifier notifier;
+
+  // Only touched by the notifier thread
+  private final CANStatus status = new CANStatus();
+  private final Window utilization = new Window();
+  private final Window busOff = new Window();
+  private final Window txFull = new Window();
+  private int lastBusOffCount = -1, lastTxFullCount = -1;
+  private double lastHealthTime = 0;
+  private String[] faulted = new String[0];
+  private String[] firmware = new String[0];
+
+  private final GenericEntry utilizationEntry, peakUtilizationEntry, busOffEntry, txFullEntry,
+      receiveErrorEntry, transmitErrorEntry, sparkMaxFramesEntry, faultedEntry, firmwareEntry;
+
+  private DeviceMonitor() {
+    ShuffleboardTab canTab = Shuffleboard.getTab("CAN");
+    utilizationEntry = canTab.add("Bus Utilization %", 0.0).getEntry();
+    peakUtilizationEntry = canTab.add("Peak Utilization %", 0.0).getEntry();
+    busOffEntry = canTab.add("Bus Off", 0.0).getEntry();
+    txFullEntry = canTab.add("TX Full", 0.0).getEntry();
+    receiveErrorEntry = canTab.add("RX Errors", 0.0).getEntry();
+    transmitErrorEntry = canTab.add("TX Errors", 0.0).getEntry();
+    // What the SPARK MAX profiles ask for, to compare against the measured utilization
+    sparkMaxFramesEntry = canTab.add("SPARK MAX Frames/s", 0.0).getEntry();
+    faultedEntry = canTab.add("Faulted Devices", faulted).getEntry();
+    firmwareEntry = canTab.add("Firmware", firmware).getEntry();
+
+    notifier = new Notifier(this::poll);
+    notifier.setName("DeviceMonitor");
+    notifier.startPeriodic(CANMap.RESET_CHECK_PERIOD);
+  }
+
+  public void register(ManagedDevice device) {
+    devices.add(device);
+  }
+
+  public List<ManagedDevice> getDevices() {
+    return devices;
+  }
+
+  private void poll() {
+    for (ManagedDevice device : devices) {
+      device.poll();
+    }
+
+    double now = Timer.getFPGATimestamp();
+    if (now - lastHealthTime >= CANMap.HEALTH_PERIOD) {
+      lastHealthTime = now;
+      sampleBus();
+      sampleDevices();
+    }
+  }
+
+  private void sampleBus() {
+    RobotController.getCANStatus(status);
+
+    // Bus off and TX full are running totals, keep how many happened each sample
+    if (lastBusOffCount >= 0) {
+      busOff.add(status.busOffCount - lastBusOffCount);
+      txFull.add(status.txFullCount - lastTxFullCount);
+    }
+    lastBusOffCount = status.busOffCount;
+    lastTxFullCount = status.txFullCount;
+    utilization.add(status.percentBusUtilization * 100);
+
+    utilizationEntry.setDouble(utilization.mean());
+    peakUtilizationEntry.setDouble(utilization.max());
+    busOffEntry.setDouble(busOff.sum());
+    txFullEntry.setDouble(txFull.sum());
+    receiveErrorEntry.setDouble(status.receiveErrorCount);
+    transmitErrorEntry.setDouble(status.transmitErrorCount);
+    sparkMaxFramesEntry.setDouble(SparkMaxFactory.getStatusFramesPerSecond());
+  }
+
+  private void sampleDevices() {
+    int faultCount = 0;
+    boolean faultsChanged = false, firmwareChanged = firmware.length != devices.size();
+    if (firmwareChanged) {
+      firmware = new String[devices.size()];
+    }
+
+    for (int i = 0; i < devices.size() && i < firmware.length; i++) {
+      ManagedDevice device = devices.get(i);
+      String health = device.checkHealth();
+      if (health != null) {
+        if (faultCount >= faulted.length || !health.equals(faulted[faultCount])) {
+          faultsChanged = true;
+        }
+        if (faultCount >= faulted.length) {
+          faulted = Arrays.copyOf(faulted, faultCount + 1);
+        }
+        faulted[faultCount++] = health;
+      }
+
+      // Firmware only needs reading until the device first answers
+      if (firmware[i] == null || firmware[i].endsWith("?")) {
+        String version = device.getFirmwareVersion();
+        String entry = device.getName() + " " + (version == null ? "?" : version);
+        if (!entry.equals(firmware[i])) {
+          firmware[i] = entry;
+          firmwareChanged = true;
+        }
+      }
+    }
+
+    if (faultsChanged || faultCount != faulted.length) {
+      faulted = Arrays.copyOf(faulted, faultCount);
+      faultedEntry.setStringArray(faulted);
+    }
+    if (firmwareChanged) {
+      firmwareEntry.setStringArray(firmware);
+    }
+  }
+}
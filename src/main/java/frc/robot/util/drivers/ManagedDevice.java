@@ -0,0 +1,94 @@
+package frc.robot.util.drivers;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * A CAN device whose intended configuration is kept on the host, so it can be
+ * restored if the device resets. Polled by {@link DeviceMonitor} off the main
+ * thread.
+ */
+public abstract class ManagedDevice {
+  private final String name;
+  private boolean pending = false;
+  private int resetCount = 0;
+
+  protected ManagedDevice(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return Number of resets seen since boot
+   */
+  public int getResetCount() {
+    return resetCount;
+  }
+
+  /**
+   * @return true if the device reset since the last call, clearing the flag
+   */
+  protected abstract boolean hasReset();
+
+  /**
+   * Reads the device's configuration back, re-applies the parameters that
+   * differ from the intended ones, then redoes setup the device doesn't keep
+   * across a reset.
+   *
+   * @return Number of parameters re-applied, or -1 if the device didn't
+   *         answer and should be tried again
+   */
+  protected abstract int reapply();
+
+  /**
+   * Reads the device's live faults and last error.
+   *
+   * @return Short description of what's wrong, or null if the device is healthy
+   */
+  protected abstract String checkHealth();
+
+  /**
+   * @return Firmware version, or null until the device has answered
+   */
+  protected abstract String getFirmwareVersion();
+
+  /**
+   * Formats a Phoenix firmware version, which packs major and minor into one
+   * int and reads -1 while the device is missing.
+   */
+  protected static String phoenixVersion(int version) {
+    return version < 0 ? null : (version >> 8) + "." + (version & 0xff);
+  }
+
+  /**
+   * @param error     Error name, null if the device answered
+   * @param faultBits Active fault bitfield
+   */
+  protected String describeHealth(String error, long faultBits) {
+    if (error == null && faultBits == 0) {
+      return null;
+    }
+    return name + (error != null ? " " + error : "") + (faultBits != 0 ? " faults 0x" + Long.toHexString(faultBits) : "");
+  }
+
+  void poll() {
+    if (hasReset()) {
+      resetCount++;
+      pending = true;
+    }
+    if (pending) {
+      int changed = reapply();
+      if (changed >= 0) {
+        pending = false;
+        DriverStation.reportWarning(name + " reset, re-applied " + changed + " parameters", false);
+      }
+    }
+  }
+
+  protected static boolean differs(double actual, double intended) {
+    // Parameters round trip through fixed point on the device
+    return Math.abs(actual - intended) > 1e-3 * Math.max(1, Math.abs(intended));
+  }
+}
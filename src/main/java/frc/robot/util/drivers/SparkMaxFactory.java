@@ -0,0 +1,105 @@
+package frc.robot.util.drivers;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+
+/**
+ * Creates SPARK MAX objects with status frame periods picked for the role the
+ * controller plays. Frame periods are not saved by burnFlash, so they are
+ * applied on every boot. Everything else is left to the application.
+ */
+public class SparkMaxFactory {
+
+  // Longest period the SPARK MAX accepts, effectively disables the frame
+  private static final int kDisabledPeriodMs = 65535;
+
+  public static class Configuration {
+    // Applied output, faults and limit switches. Followers listen to their leader's Status 0.
+    public int STATUS_0_PERIOD_MS = 10;
+    // Velocity, temperature, bus voltage and output current
+    public int STATUS_1_PERIOD_MS = 20;
+    // Integrated encoder position
+    public int STATUS_2_PERIOD_MS = 20;
+    // Analog sensor
+    public int STATUS_3_PERIOD_MS = kDisabledPeriodMs;
+    // Alternate encoder
+    public int STATUS_4_PERIOD_MS = kDisabledPeriodMs;
+    // Duty cycle absolute encoder position
+    public int STATUS_5_PERIOD_MS = kDisabledPeriodMs;
+    // Duty cycle absolute encoder velocity
+    public int STATUS_6_PERIOD_MS = kDisabledPeriodMs;
+  }
+
+  public static final Configuration kMechanismConfiguration = new Configuration();
+  public static final Configuration kRollerConfiguration = new Configuration();
+  public static final Configuration kFollowerConfiguration = new Configuration();
+
+  static {
+    // Rollers only look at current and velocity
+    kRollerConfiguration.STATUS_0_PERIOD_MS = 100;
+    kRollerConfiguration.STATUS_2_PERIOD_MS = 500;
+
+    // Nothing is read off a follower, keep temperature around for diagnostics
+    kFollowerConfiguration.STATUS_0_PERIOD_MS = 100;
+    kFollowerConfiguration.STATUS_1_PERIOD_MS = 500;
+    kFollowerConfiguration.STATUS_2_PERIOD_MS = 500;
+  }
+
+  private static double statusFramesPerSecond = 0;
+
+  // Position or velocity controlled mechanism reading its integrated encoder
+  public static CANSparkMax createMechanismSparkMax(int id) {
+    return createSparkMax(id, kMechanismConfiguration);
+  }
+
+  // Open loop roller watching its own current and speed
+  public static CANSparkMax createRollerSparkMax(int id) {
+    return createSparkMax(id, kRollerConfiguration);
+  }
+
+  public static CANSparkMax createFollowerSparkMax(int id, CANSparkMax leader, boolean invert) {
+    CANSparkMax spark = createSparkMax(id, kFollowerConfiguration);
+    SparkMaxUtil.checkError(spark.follow(leader, invert), "Could not set SPARK MAX " + id + " to follow: ");
+    return spark;
+  }
+
+  public static CANSparkMax createSparkMax(int id, Configuration config) {
+    CANSparkMax spark = new CANSparkMax(id, MotorType.kBrushless);
+    SparkMaxUtil.checkError(spark.restoreFactoryDefaults(), "Could not restore SPARK MAX " + id + " defaults: ");
+    configureStatusFrames(spark, config);
+
+    int[] periods = { config.STATUS_0_PERIOD_MS, config.STATUS_1_PERIOD_MS, config.STATUS_2_PERIOD_MS,
+        config.STATUS_3_PERIOD_MS, config.STATUS_4_PERIOD_MS, config.STATUS_5_PERIOD_MS, config.STATUS_6_PERIOD_MS };
+    for (int period : periods) {
+      if (period < kDisabledPeriodMs) {
+        statusFramesPerSecond += 1000.0 / period;
+      }
+    }
+    return spark;
+  }
+
+  public static void configureStatusFrames(CANSparkMax spark, Configuration config) {
+    int id = spark.getDeviceId();
+    setPeriod(spark, id, PeriodicFrame.kStatus0, config.STATUS_0_PERIOD_MS);
+    setPeriod(spark, id, PeriodicFrame.kStatus1, config.STATUS_1_PERIOD_MS);
+    setPeriod(spark, id, PeriodicFrame.kStatus2, config.STATUS_2_PERIOD_MS);
+    setPeriod(spark, id, PeriodicFrame.kStatus3, config.STATUS_3_PERIOD_MS);
+    setPeriod(spark, id, PeriodicFrame.kStatus4, config.STATUS_4_PERIOD_MS);
+    setPeriod(spark, id, PeriodicFrame.kStatus5, config.STATUS_5_PERIOD_MS);
+    setPeriod(spark, id, PeriodicFrame.kStatus6, config.STATUS_6_PERIOD_MS);
+  }
+
+  private static void setPeriod(CANSparkMax spark, int id, PeriodicFrame frame, int periodMs) {
+    SparkMaxUtil.checkError(spark.setPeriodicFramePeriod(frame, periodMs),
+        "Could not set SPARK MAX " + id + " " + frame + " period: ");
+  }
+
+  /**
+   * @return Status frames per second every SPARK MAX created so far asked
+   *         for, to compare against measured bus utilization
+   */
+  public static double getStatusFramesPerSecond() {
+    return statusFramesPerSecond;
+  }
+}
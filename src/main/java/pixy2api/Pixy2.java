@@ -97,6 +97,9 @@ public class Pixy2 {
 
 	protected boolean m_cs = false;
 
+	private final byte[] syncByte = new byte[1];
+	private final Checksum csCalc = new Checksum();
+
 	/**
 	 * Constructs Pixy2 object with supplied communication link
 	 * 
@@ -341,11 +344,11 @@ public class Pixy2 {
 	 */
 	private byte getSync() {
 		int i, attempts, cprev, res, start, ret;
-		byte[] c = new byte[1];
+		byte[] c = syncByte;
 
 		// Parse incoming bytes until sync bytes are found
 		for (i = attempts = cprev = 0; true; i++) {
-			res = link.receive(c, 1) & 0xff;
+			res = link.receive(c, 1);
 			if (res >= PIXY_RESULT_OK) {
 				ret = c[0] & 0xff;
 				// Since we're using little endian, previous byte is least significant byte
@@ -396,7 +399,6 @@ public class Pixy2 {
 	 */
 	protected int receivePacket() {
 		int csSerial, res;
-		Checksum csCalc = new Checksum();
 
 		// Waits for sync bytes
 		res = getSync();
@@ -60,6 +60,122 @@ public class Pixy2Video {
 	 * @return Pixy2 error code
 	 */
 	public int getRGB(int x, int y, RGB rgb, boolean saturate) {
+		int res = requestRGB(x, y, saturate);
+		if (res < 0)
+			return res;
+		rgb.setRGB(res);
+		return 0; // Success
+	}
+
+	/**
+	 * <p>Gets average RGB values at 5x5 areas around each of the specified points
+	 * in the image</p>
+	 * 
+	 * <p>Requests are sent back-to-back without allocating, and results are
+	 * written to the output array as packed 0xRRGGBB values in point order</p>
+	 * 
+	 * @param points   Interleaved x and y values of each point
+	 * @param count    Number of points to sample
+	 * @param out      Array to return packed RGB values in, at least count long
+	 * @param saturate Whether or not to scale all RGB values to maximize the
+	 *                 greatest value at 255
+	 * 
+	 * @return Number of points sampled or Pixy2 error code
+	 */
+	public int getRGB(int[] points, int count, int[] out, boolean saturate) {
+		if (count < 0 || points.length < 2 * count || out.length < count)
+			return Pixy2.PIXY_RESULT_ERROR;
+		for (int i = 0; i < count; i++) {
+			int res = requestRGB(points[2 * i], points[(2 * i) + 1], saturate);
+			if (res < 0)
+				return res;
+			out[i] = res;
+		}
+		return count;
+	}
+
+	/**
+	 * <p>Gets average RGB values at 5x5 areas around each point of a grid in the
+	 * image</p>
+	 * 
+	 * <p>Results are written to the output array as packed 0xRRGGBB values in
+	 * row-major order</p>
+	 * 
+	 * @param x        X value of the top left point
+	 * @param y        Y value of the top left point
+	 * @param columns  Number of points in each row
+	 * @param rows     Number of rows
+	 * @param step     Distance between neighbouring points, at least 1
+	 * @param out      Array to return packed RGB values in, at least
+	 *                 columns * rows long
+	 * @param saturate Whether or not to scale all RGB values to maximize the
+	 *                 greatest value at 255
+	 * 
+	 * @return Number of points sampled or Pixy2 error code
+	 */
+	public int getRGBGrid(int x, int y, int columns, int rows, int step, int[] out, boolean saturate) {
+		if (columns < 0 || rows < 0 || step < 1 || out.length < columns * rows)
+			return Pixy2.PIXY_RESULT_ERROR;
+		int i = 0;
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				int res = requestRGB(x + (column * step), y + (row * step), saturate);
+				if (res < 0)
+					return res;
+				out[i++] = res;
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * <p>Gets the average RGB value of a square patch centered on the specified
+	 * coordinates in the image</p>
+	 * 
+	 * <p>The patch is sampled as a size x size grid and averaged per channel,
+	 * which is steadier than a single sample for classifying game piece color</p>
+	 * 
+	 * @param x        X value of the patch center
+	 * @param y        Y value of the patch center
+	 * @param size     Number of points along each side of the patch, at least 1
+	 * @param step     Distance between neighbouring points, at least 1
+	 * @param saturate Whether or not to scale all RGB values to maximize the
+	 *                 greatest value at 255
+	 * 
+	 * @return Packed 0xRRGGBB value or Pixy2 error code
+	 */
+	public int getAverageRGB(int x, int y, int size, int step, boolean saturate) {
+		if (size < 1 || step < 1)
+			return Pixy2.PIXY_RESULT_ERROR;
+		int r = 0, g = 0, b = 0;
+		int half = ((size - 1) * step) / 2;
+
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				int res = requestRGB(x - half + (column * step), y - half + (row * step), saturate);
+				if (res < 0)
+					return res;
+				r += (res >> 16) & 0xff;
+				g += (res >> 8) & 0xff;
+				b += res & 0xff;
+			}
+		}
+		int samples = size * size;
+		return ((r / samples) << 16) | ((g / samples) << 8) | (b / samples);
+	}
+
+	/**
+	 * Requests the average RGB value at 5x5 area around specified coordinates in
+	 * the image
+	 * 
+	 * @param x        X value
+	 * @param y        Y value
+	 * @param saturate Whether or not to scale all RGB values to maximize the
+	 *                 greatest value at 255
+	 * 
+	 * @return Packed 0xRRGGBB value or Pixy2 error code
+	 */
+	private int requestRGB(int x, int y, boolean saturate) {
 		long start = System.currentTimeMillis();
 
 		while (true) {
@@ -73,10 +189,13 @@ public class Pixy2Video {
 			pixy.sendPacket();
 			if (pixy.receivePacket() == 0) {
 				if (pixy.type == Pixy2.PIXY_TYPE_RESPONSE_RESULT && pixy.length == 4) {
-					rgb.setRGB(pixy.buffer[0], pixy.buffer[1], pixy.buffer[2]);
-					return 0; // Success
+					return ((pixy.buffer[0] & 0xff) << 16) | ((pixy.buffer[1] & 0xff) << 8)
+							| (pixy.buffer[2] & 0xff); // Success
 				} else if (pixy.type == Pixy2.PIXY_TYPE_RESPONSE_ERROR
 						&& pixy.buffer[0] == Pixy2.PIXY_RESULT_PROG_CHANGING) {
+					if (System.currentTimeMillis() - start > 500) {
+						return Pixy2.PIXY_RESULT_ERROR; // Timeout to prevent lockup
+					}
 					// Deal with program changing by waiting
 					try {
 						TimeUnit.MICROSECONDS.sleep(500);
@@ -85,9 +204,6 @@ public class Pixy2Video {
 					continue;
 				}
 			}
-			if (System.currentTimeMillis() - start > 500) {
-				return Pixy2.PIXY_RESULT_ERROR; // Timeout to prevent lockup
-			}
 			return Pixy2.PIXY_RESULT_ERROR;
 		}
 	}
@@ -0,0 +1,266 @@
+package pixy2api.links;
+
+import java.util.Arrays;
+
+import pixy2api.Pixy2;
+import pixy2api.Pixy2.Checksum;
+
+/**
+ * In-memory Link to Pixy2
+ *
+ * Replays a recorded byte stream instead of talking to hardware, so the
+ * {@link Pixy2} protocol code can be exercised and benchmarked off-robot.
+ * Responses are queued with {@link #enqueue(byte[])} (usually built with
+ * {@link #packet(int, byte[], boolean)}), and every byte the host sends is
+ * captured for inspection with {@link #getSent()}.
+ *
+ * Faults can be injected into the stream: {@link #corrupt(int)} flips a queued
+ * byte, {@link #timeoutAt(int)} makes the link stop answering at a given
+ * read position, the same way {@link UARTLink} reports a missing byte, and
+ * {@link #errorAt(int)} reports a failure after a byte has already been
+ * written to the buffer.
+ *
+ * When looping is enabled the queued stream is replayed from the start once it
+ * runs out, which lets a single recorded response be parsed indefinitely
+ * without any allocation.
+ */
+
+public class PlaybackLink implements Link {
+	private final static int DEFAULT_CAPACITY = 1024;
+
+	private byte[] stream = new byte[DEFAULT_CAPACITY];
+	private int streamLength = 0;
+	private int readPosition = 0;
+	private int timeoutPosition = -1;
+	private int errorPosition = -1;
+	private boolean loop = false;
+
+	private byte[] sent = new byte[DEFAULT_CAPACITY];
+	private int sentLength = 0;
+
+	private boolean open = false;
+
+	/**
+	 * Constructs empty playback link
+	 */
+	public PlaybackLink() {
+	}
+
+	/**
+	 * Constructs playback link that replays the supplied recorded stream
+	 *
+	 * @param recording Recorded bytes as received from Pixy2
+	 */
+	public PlaybackLink(byte[] recording) {
+		enqueue(recording);
+	}
+
+	/**
+	 * Builds a Pixy2 response packet with sync bytes, header and payload
+	 *
+	 * @param type     Packet type
+	 * @param payload  Packet payload
+	 * @param checksum Whether to use the checksum sync and append a checksum
+	 *
+	 * @return Packet bytes as they would arrive over the link
+	 */
+	public static byte[] packet(int type, byte[] payload, boolean checksum) {
+		int sync = checksum ? Pixy2.PIXY_CHECKSUM_SYNC : Pixy2.PIXY_NO_CHECKSUM_SYNC;
+		int header = checksum ? 6 : 4;
+		byte[] packet = new byte[header + payload.length];
+		packet[0] = (byte) (sync & 0xff);
+		packet[1] = (byte) ((sync >> 8) & 0xff);
+		packet[2] = (byte) type;
+		packet[3] = (byte) payload.length;
+		if (checksum) {
+			int cs = 0;
+			for (int i = 0; i < payload.length; i++) {
+				cs += payload[i] & 0xff;
+			}
+			packet[4] = (byte) (cs & 0xff);
+			packet[5] = (byte) ((cs >> 8) & 0xff);
+		}
+		System.arraycopy(payload, 0, packet, header, payload.length);
+		return packet;
+	}
+
+	/**
+	 * Appends bytes to the end of the playback stream
+	 *
+	 * @param bytes Bytes to append
+	 */
+	public void enqueue(byte[] bytes) {
+		if (streamLength + bytes.length > stream.length) {
+			stream = Arrays.copyOf(stream, Math.max(stream.length * 2, streamLength + bytes.length));
+		}
+		System.arraycopy(bytes, 0, stream, streamLength, bytes.length);
+		streamLength += bytes.length;
+	}
+
+	/**
+	 * Clears the playback stream, sent bytes and any injected faults
+	 */
+	public void reset() {
+		streamLength = 0;
+		readPosition = 0;
+		timeoutPosition = -1;
+		errorPosition = -1;
+		sentLength = 0;
+	}
+
+	/**
+	 * Rewinds playback to the start of the stream without clearing it
+	 */
+	public void rewind() {
+		readPosition = 0;
+	}
+
+	/**
+	 * Sets whether playback restarts from the beginning when the stream runs out
+	 *
+	 * @param loop Whether to loop playback
+	 */
+	public void setLoop(boolean loop) {
+		this.loop = loop;
+	}
+
+	/**
+	 * Flips every bit of the queued byte at the specified stream position
+	 *
+	 * @param position Position in the playback stream
+	 */
+	public void corrupt(int position) {
+		if (position >= 0 && position < streamLength)
+			stream[position] = (byte) ~stream[position];
+	}
+
+	/**
+	 * Makes the link time out once playback reaches the specified stream position
+	 *
+	 * Use -1 to clear an injected timeout
+	 *
+	 * @param position Position in the playback stream
+	 */
+	public void timeoutAt(int position) {
+		timeoutPosition = position;
+	}
+
+	/**
+	 * Makes the link report an error for the byte at the specified stream
+	 * position, after it has been written to the buffer. This is what a link does
+	 * when it receives a byte but flags it, for example with a framing error
+	 *
+	 * Use -1 to clear an injected error
+	 *
+	 * @param position Position in the playback stream
+	 */
+	public void errorAt(int position) {
+		errorPosition = position;
+	}
+
+	/**
+	 * @return Number of queued bytes that have not been read yet
+	 */
+	public int available() {
+		return streamLength - readPosition;
+	}
+
+	/**
+	 * @return Copy of every byte sent over the link since the last reset
+	 */
+	public byte[] getSent() {
+		return Arrays.copyOf(sent, sentLength);
+	}
+
+	/**
+	 * @return Whether the link is open
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Opens playback link
+	 *
+	 * @param arg Unused
+	 *
+	 * @return Returns 0
+	 */
+	public int open(int arg) {
+		open = true;
+		return 0;
+	}
+
+	/**
+	 * Closes playback link
+	 */
+	public void close() {
+		open = false;
+	}
+
+	/**
+	 * Receives and reads specified length of bytes from the playback stream
+	 *
+	 * @param buffer Byte buffer to return value
+	 * @param length Length of value to read
+	 * @param cs     Checksum
+	 *
+	 * @return Length of value read or -1 on timeout
+	 */
+	public int receive(byte[] buffer, int length, Checksum cs) {
+		if (cs != null)
+			cs.reset();
+		for (int i = 0; i < length; i++) {
+			if (readPosition >= streamLength) {
+				if (!loop || streamLength == 0)
+					return -1;
+				readPosition = 0;
+			}
+			if (readPosition == timeoutPosition) {
+				timeoutPosition = -1;
+				return -1;
+			}
+			if (readPosition == errorPosition) {
+				errorPosition = -1;
+				buffer[i] = stream[readPosition++];
+				return -1;
+			}
+			buffer[i] = stream[readPosition++];
+			if (cs != null)
+				cs.updateChecksum(buffer[i] & 0xff);
+		}
+		return length;
+	}
+
+	/**
+	 * Receives and reads specified length of bytes from the playback stream
+	 *
+	 * @param buffer Byte buffer to return value
+	 * @param length Length of value to read
+	 *
+	 * @return Length of value read or -1 on timeout
+	 */
+	public int receive(byte[] buffer, int length) {
+		return receive(buffer, length, null);
+	}
+
+	/**
+	 * Captures sent buffer for later inspection
+	 *
+	 * @param buffer Byte buffer to send
+	 * @param length Length of value to send
+	 *
+	 * @return Length of value sent
+	 */
+	public int send(byte[] buffer, int length) {
+		if (sentLength + length > sent.length) {
+			// Keep only the most recent request once the capture buffer is full
+			sentLength = 0;
+			if (length > sent.length)
+				sent = new byte[length];
+		}
+		System.arraycopy(buffer, 0, sent, sentLength, length);
+		sentLength += length;
+		return length;
+	}
+}
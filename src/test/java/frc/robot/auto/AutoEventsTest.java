@@ -0,0 +1,55 @@
+package frc.robot.auto;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AutoEventsTest {
+  private static final File PATH_DIRECTORY = new File("src/main/deploy/pathplanner");
+
+  @Test
+  public void pathEventsAreInEventMap() throws IOException {
+    File[] paths = PATH_DIRECTORY.listFiles((dir, name) -> name.endsWith(".path"));
+    assertTrue(paths != null && paths.length > 0, "No paths in " + PATH_DIRECTORY);
+
+    ObjectMapper mapper = new ObjectMapper();
+    for (File path : paths) {
+      JsonNode root = mapper.readTree(path);
+      for (JsonNode marker : root.path("markers")) {
+        assertNames(path, "marker", marker.path("names"));
+      }
+      for (JsonNode waypoint : root.path("waypoints")) {
+        assertNames(path, "stop event", waypoint.path("stopEvent").path("names"));
+      }
+    }
+  }
+
+  @Test
+  public void retractIsNotQueuedBehindScore() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    for (File path : PATH_DIRECTORY.listFiles((dir, name) -> name.endsWith(".path"))) {
+      JsonNode start = mapper.readTree(path).path("waypoints").path(0).path("stopEvent");
+      if (!"sequential".equals(start.path("executionBehavior").asText())) {
+        continue;
+      }
+      for (JsonNode name : start.path("names")) {
+        assertFalse(AutoEvents.RETRACT.equals(name.asText()),
+            path.getName() + " retracts in its sequential start event, use a marker");
+      }
+    }
+  }
+
+  private static void assertNames(File path, String kind, JsonNode names) {
+    for (JsonNode name : names) {
+      assertTrue(AutoEvents.NAMES.contains(name.asText()),
+          path.getName() + " " + kind + " \"" + name.asText() + "\" is not in the event map");
+    }
+  }
+}
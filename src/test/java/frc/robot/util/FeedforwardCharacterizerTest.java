@@ -0,0 +1,93 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.RobotMap.CharacterizationMap;
+import frc.robot.util.FeedforwardCharacterizer.Mechanism;
+
+public class FeedforwardCharacterizerTest {
+  private static final double KS = 0.25, KG = 0.6, KV = 2.4, KA = 0.35;
+  private static final double PERIOD = CharacterizationMap.SAMPLE_PERIOD;
+  private static final int TEST_SAMPLES = 400;
+  private static final double TOLERANCE = 1e-6;
+
+  private final double[] times = new double[4 * TEST_SAMPLES];
+  private final double[] voltages = new double[4 * TEST_SAMPLES];
+  private final double[] positions = new double[4 * TEST_SAMPLES];
+  private final double[] velocities = new double[4 * TEST_SAMPLES];
+  private final int[] phases = new int[4 * TEST_SAMPLES];
+
+  @Test
+  public void recoversElevatorGains() {
+    record(Mechanism.ELEVATOR, 0);
+    FeedforwardGains gains = FeedforwardCharacterizer.fit("Elevator", Mechanism.ELEVATOR,
+        times, voltages, positions, velocities, phases, times.length);
+
+    assertGains(gains);
+  }
+
+  @Test
+  public void recoversArmGains() {
+    // Start below horizontal so cos(position) varies across the tests
+    record(Mechanism.ARM, -0.4);
+    FeedforwardGains gains = FeedforwardCharacterizer.fit("Pivot", Mechanism.ARM,
+        times, voltages, positions, velocities, phases, times.length);
+
+    assertGains(gains);
+  }
+
+  @Test
+  public void standingStillDoesNotFit() {
+    for (int i = 0; i < times.length; i++) {
+      times[i] = i * PERIOD;
+      voltages[i] = KS / 2;
+      phases[i] = 1 + i / TEST_SAMPLES;
+    }
+    assertNull(FeedforwardCharacterizer.fit("Elevator", Mechanism.ELEVATOR,
+        times, voltages, positions, velocities, phases, times.length));
+  }
+
+  private static void assertGains(FeedforwardGains gains) {
+    assertNotNull(gains);
+    assertEquals(KS, gains.kS, TOLERANCE);
+    assertEquals(KG, gains.kG, TOLERANCE);
+    assertEquals(KV, gains.kV, TOLERANCE);
+    assertEquals(KA, gains.kA, TOLERANCE);
+  }
+
+  /**
+   * Fills the buffers with quasistatic and dynamic tests in both directions,
+   * voltages taken from the model. Velocities are quadratic in time so the
+   * central difference the fit uses is the exact acceleration.
+   */
+  private void record(Mechanism mechanism, double startPosition) {
+    double position = startPosition;
+    for (int i = 0; i < times.length; i++) {
+      int test = i / TEST_SAMPLES;
+      double t = (i % TEST_SAMPLES) * PERIOD;
+      double direction = (test % 2 == 0) ? 1 : -1;
+      double velocity, acceleration;
+      if (test < 2) {
+        // Quasistatic, a slow ramp
+        velocity = direction * (0.1 + 0.2 * t);
+        acceleration = direction * 0.2;
+      } else {
+        // Dynamic, a step that accelerates hard then levels off
+        velocity = direction * (0.2 + 2 * t - 0.5 * t * t);
+        acceleration = direction * (2 - t);
+      }
+      position += velocity * PERIOD;
+
+      double gravity = (mechanism == Mechanism.ARM) ? Math.cos(position) : 1;
+      times[i] = i * PERIOD;
+      positions[i] = position;
+      velocities[i] = velocity;
+      voltages[i] = KS * Math.signum(velocity) + KV * velocity + KA * acceleration + KG * gravity;
+      phases[i] = test + 1;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+public class LimelightResultsReaderTest {
+  private static final String FULL = "{\"Results\":{\"pID\":1,\"tl\":12.5,\"cl\":20,\"ts\":5000,\"v\":1,"
+      + "\"botpose\":[1,2,0,0,0,90],\"botpose_wpiblue\":[9.27,6.1,0,0,0,90],\"botpose_wpired\":[7.27,2.0,0,0,0,-90],"
+      + "\"Classifier\":[],\"Fiducial\":[{\"fID\":3,\"tx\":-4.5,\"ty\":1.5,\"ta\":0.2,"
+      + "\"t6r_fs\":[1,2,0,0,0,90],\"t6t_rs\":[0.1,0,2.5,0,10,0],\"pts\":[[1,2],[3,4]]},"
+      + "{\"fID\":4,\"tx\":6,\"ty\":-1,\"ta\":0.1,\"t6r_fs\":[1,2,0,0,0,91]}]}}";
+
+  private static final double[] ZEROS = new double[6];
+
+  @Test
+  public void parsesResults() throws IOException {
+    LimelightResultsReader.Snapshot snapshot = new LimelightResultsReader.Snapshot();
+    LimelightResultsReader.parse(FULL, snapshot);
+
+    assertTrue(snapshot.valid);
+    assertEquals(1, snapshot.pipelineID, 0);
+    assertEquals(12.5, snapshot.latency_pipeline, 0);
+    assertEquals(20, snapshot.latency_capture, 0);
+    assertArrayEquals(new double[] { 9.27, 6.1, 0, 0, 0, 90 }, snapshot.botpose_wpiblue, 0);
+    assertEquals(2, snapshot.fiducialCount);
+    assertEquals(3, snapshot.fiducials[0].fiducialID);
+    assertEquals(-4.5, snapshot.fiducials[0].tx, 0);
+    assertArrayEquals(new double[] { 0.1, 0, 2.5, 0, 10, 0 }, snapshot.fiducials[0].targetPose_RobotSpace, 0);
+    assertEquals(4, snapshot.fiducials[1].fiducialID);
+  }
+
+  @Test
+  public void missingFieldsDontKeepPreviousFrame() throws IOException {
+    LimelightResultsReader.Snapshot snapshot = new LimelightResultsReader.Snapshot();
+    LimelightResultsReader.parse(FULL, snapshot);
+    LimelightResultsReader.parse("{\"Results\":{\"tl\":11,\"v\":0,\"Fiducial\":[{\"fID\":7}]}}", snapshot);
+
+    assertFalse(snapshot.valid);
+    assertEquals(0, snapshot.pipelineID, 0);
+    assertEquals(0, snapshot.latency_capture, 0);
+    assertArrayEquals(ZEROS, snapshot.botpose, 0);
+    assertArrayEquals(ZEROS, snapshot.botpose_wpiblue, 0);
+    assertArrayEquals(ZEROS, snapshot.botpose_wpired, 0);
+    assertEquals(1, snapshot.fiducialCount);
+    assertEquals(7, snapshot.fiducials[0].fiducialID);
+    assertEquals(0, snapshot.fiducials[0].tx, 0);
+    assertArrayEquals(ZEROS, snapshot.fiducials[0].robotPose_FieldSpace, 0);
+    assertArrayEquals(ZEROS, snapshot.fiducials[0].targetPose_RobotSpace, 0);
+  }
+
+  @Test
+  public void shortArrayZeroesTail() throws IOException {
+    LimelightResultsReader.Snapshot snapshot = new LimelightResultsReader.Snapshot();
+    LimelightResultsReader.parse(FULL, snapshot);
+    LimelightResultsReader.parse("{\"Results\":{\"v\":1,\"botpose_wpiblue\":[3,4]}}", snapshot);
+
+    assertArrayEquals(new double[] { 3, 4, 0, 0, 0, 0 }, snapshot.botpose_wpiblue, 0);
+    assertEquals(0, snapshot.fiducialCount);
+  }
+
+  @Test
+  public void ignoresDumpWithoutResults() throws IOException {
+    LimelightResultsReader.Snapshot snapshot = new LimelightResultsReader.Snapshot();
+    LimelightResultsReader.parse(FULL, snapshot);
+    LimelightResultsReader.parse("[]", snapshot);
+
+    assertFalse(snapshot.valid);
+    assertArrayEquals(ZEROS, snapshot.botpose_wpiblue, 0);
+    assertEquals(0, snapshot.fiducialCount);
+  }
+}
@@ -0,0 +1,100 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+
+public class NavGridTest {
+  private static final NavGrid GRID = new NavGrid();
+
+  @Test
+  public void plansAroundChargingStation() {
+    Translation2d start = new Translation2d(2.2, 2.7);
+    Translation2d goal = new Translation2d(5.6, 2.7);
+    List<Translation2d> path = GRID.findPath(start, goal);
+
+    assertTrue(path.size() > 2, "Straight line crosses the charging station");
+    assertEquals(start, path.get(0));
+    assertEquals(goal, path.get(path.size() - 1));
+    assertLegsClear(path);
+  }
+
+  @Test
+  public void joinsEndpointsInsideMargin() {
+    // Starts against the charging station and ends at a node, both in grown cells
+    Translation2d start = new Translation2d(2.6, 2.7);
+    Translation2d goal = new Translation2d(1.6, 4.4);
+    assertTrue(GRID.isBlocked(start));
+    assertTrue(GRID.isBlocked(goal));
+
+    List<Translation2d> path = GRID.findPath(start, goal);
+    assertEquals(start, path.get(0));
+    assertEquals(goal, path.get(path.size() - 1));
+  }
+
+  @Test
+  public void unreachableGoalHasNoPath() {
+    // Middle of the charging station, over a meter from any free cell
+    assertTrue(GRID.findPath(new Translation2d(2.2, 2.7), new Translation2d(3.885, 2.745)).isEmpty());
+  }
+
+  @Test
+  public void trajectoryThroughObstacleIsNotClear() {
+    assertFalse(GRID.isClear(line(new Translation2d(2.2, 2.7), new Translation2d(5.6, 2.7))));
+    assertTrue(GRID.isClear(line(new Translation2d(2.2, 0.7), new Translation2d(5.6, 0.7))));
+    // Ending in the grid's margin, like a scoring pose, is fine
+    assertTrue(GRID.isClear(line(new Translation2d(2.2, 0.7), new Translation2d(1.6, 0.7))));
+  }
+
+  @Test
+  public void subdivideAddsMidpoints() {
+    List<Translation2d> points = NavGrid.subdivide(
+        List.of(new Translation2d(0, 0), new Translation2d(2, 0), new Translation2d(2, 4)));
+    assertEquals(List.of(new Translation2d(0, 0), new Translation2d(1, 0), new Translation2d(2, 0),
+        new Translation2d(2, 2), new Translation2d(2, 4)), points);
+  }
+
+  @Test
+  public void crossFieldSearchIsFast() {
+    Translation2d start = new Translation2d(2.2, 0.7);
+    Translation2d goal = new Translation2d(14.3, 7.3);
+    // Let the JIT compile the search first
+    for (int i = 0; i < 50; i++) {
+      GRID.findPath(start, goal);
+    }
+    double total = 0;
+    for (int i = 0; i < 20; i++) {
+      assertFalse(GRID.findPath(start, goal).isEmpty());
+      total += GRID.getLastSearchTime();
+    }
+    assertTrue(total / 20 < 5, "Average search took " + total / 20 + " ms");
+  }
+
+  private static void assertLegsClear(List<Translation2d> path) {
+    for (int i = 1; i < path.size(); i++) {
+      for (double t = 0; t <= 1; t += 0.01) {
+        Translation2d point = path.get(i - 1).interpolate(path.get(i), t);
+        assertFalse(GRID.isBlocked(point), "Leg " + i + " blocked at " + point);
+      }
+    }
+  }
+
+  /**
+   * One second straight line trajectory between two points
+   */
+  private static Trajectory line(Translation2d from, Translation2d to) {
+    Rotation2d heading = to.minus(from).getAngle();
+    return new Trajectory(List.of(
+        new Trajectory.State(0, 0, 0, new Pose2d(from, heading), 0),
+        new Trajectory.State(1, 0, 0, new Pose2d(to, heading), 0)));
+  }
+}
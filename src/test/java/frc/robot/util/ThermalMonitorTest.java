@@ -0,0 +1,74 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.RobotMap.ThermalMap;
+import frc.robot.util.ThermalMonitor.MotorType;
+
+public class ThermalMonitorTest {
+  private static final double DT = 0.02;
+
+  private double current = 0;
+  private double measured = 0;
+  private final ThermalMonitor.Motor motor = new ThermalMonitor.Motor("Test", "Test", MotorType.FALCON,
+      () -> current, () -> measured);
+
+  @Test
+  public void idleMotorStaysAtAmbient() {
+    run(60);
+
+    assertEquals(ThermalMap.AMBIENT_TEMPERATURE, motor.estimate, 1e-9);
+    assertEquals(ThermalMap.AMBIENT_TEMPERATURE, motor.predict(ThermalMap.PREDICTION_HORIZON), 1e-9);
+    assertEquals(ThermalMap.MAX_TIME_TO_LIMIT, motor.getTimeToLimit(), 0);
+    assertEquals(1, motor.derate, 0);
+  }
+
+  @Test
+  public void timeToLimitMatchesModel() {
+    // Settle the smoothed heating, then check the prediction against the model stepping on its own
+    current = 60;
+    run(20);
+    double timeToLimit = motor.getTimeToLimit();
+    double predicted = motor.predict(30);
+    assertTrue(timeToLimit > 30 && timeToLimit < ThermalMap.MAX_TIME_TO_LIMIT, "Time to limit " + timeToLimit);
+
+    run(30);
+    assertEquals(predicted, motor.estimate, 0.2);
+    run(timeToLimit - 30);
+    assertEquals(MotorType.FALCON.limit, motor.estimate, 0.5);
+  }
+
+  @Test
+  public void deratesAheadOfLimit() {
+    current = 60;
+    double lastDerate = 1;
+    while (motor.getTimeToLimit() > 0) {
+      run(1);
+      assertTrue(motor.derate <= lastDerate, "Derate rose while heating");
+      lastDerate = motor.derate;
+    }
+    // Bottomed out once at the limit
+    assertEquals(ThermalMap.MIN_DERATE, motor.derate, 1e-9);
+    assertEquals(0, motor.getTimeToLimit(), 0);
+  }
+
+  @Test
+  public void estimatePulledToReading() {
+    measured = 60;
+    run(10 * ThermalMap.CORRECTION_TIME_CONSTANT);
+
+    // Balance of cooling to ambient and correction towards the reading
+    double cooling = 1 / MotorType.FALCON.timeConstant, correction = 1 / ThermalMap.CORRECTION_TIME_CONSTANT;
+    double expected = (cooling * ThermalMap.AMBIENT_TEMPERATURE + correction * measured) / (cooling + correction);
+    assertEquals(expected, motor.estimate, 0.1);
+  }
+
+  private void run(double seconds) {
+    for (int i = 0; i < Math.round(seconds / DT); i++) {
+      motor.update(DT);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package pixy2api;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import pixy2api.links.PlaybackLink;
+
+/**
+ * Response parsing throughput over a looped {@link PlaybackLink}
+ *
+ * Tagged so it only runs with {@code ./gradlew benchmark}, not as part of the
+ * regular test run. Each recorded response is replayed on its own and reports
+ * nanoseconds and bytes allocated per call.
+ */
+@Tag("benchmark")
+public class Pixy2Benchmark {
+	private static final int WARMUP_CALLS = 200_000;
+	private static final int MEASURED_CALLS = 1_000_000;
+
+	private static final int CCC_BLOCKS = 6;
+	private static final int RGB_POINTS = 8;
+
+	/**
+	 * Raw packet handling, a full frame of payload
+	 */
+	@Test
+	public void receivePacket() {
+		byte[] payload = new byte[252];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = (byte) i;
+		}
+		Pixy2 pixy = playback(PlaybackLink.packet(Pixy2.PIXY_TYPE_RESPONSE_RESULT, payload, true));
+
+		measure("Pixy2.receivePacket", pixy::receivePacket);
+	}
+
+	@Test
+	public void getBlocks() {
+		// Blocks of 14 bytes: x, y, width, height, angle, signature (16 bit), index, age
+		byte[] payload = new byte[14 * CCC_BLOCKS];
+		for (int i = 0; i < CCC_BLOCKS; i++) {
+			int block = 14 * i;
+			payload[block] = 1;
+			payload[block + 2] = (byte) (40 * i);
+			payload[block + 4] = (byte) (30 + i);
+			payload[block + 6] = 20;
+			payload[block + 8] = 15;
+			payload[block + 12] = (byte) i;
+			payload[block + 13] = (byte) 200;
+		}
+		Pixy2 pixy = playback(PlaybackLink.packet(Pixy2CCC.CCC_RESPONSE_BLOCKS, payload, true));
+		Pixy2CCC ccc = pixy.getCCC();
+
+		measure("Pixy2CCC.getBlocks", () -> ccc.getBlocks(false, Pixy2CCC.CCC_SIG_ALL, CCC_BLOCKS));
+	}
+
+	@Test
+	public void getFeatures() {
+		// A main features frame: two vectors, one intersection and one barcode
+		byte[] vectors = { 10, 50, 40, 10, 0, 0, 60, 50, 70, 12, 1, 0 };
+		byte[] intersection = new byte[4 + (4 * Pixy2Line.LINE_MAX_INTERSECTION_LINES)];
+		intersection[0] = 40;
+		intersection[1] = 10;
+		intersection[2] = 2;
+		for (int l = 0; l < 2; l++) {
+			intersection[4 + (4 * l)] = (byte) l;
+			intersection[4 + (4 * l) + 2] = (byte) (90 * l);
+		}
+		byte[] barcode = { 30, 20, 0, 5 };
+		byte[] payload = concat(
+				feature(Pixy2Line.LINE_VECTOR, vectors),
+				feature(Pixy2Line.LINE_INTERSECTION, intersection),
+				feature(Pixy2Line.LINE_BARCODE, barcode));
+		Pixy2 pixy = playback(PlaybackLink.packet(Pixy2Line.LINE_RESPONSE_GET_FEATURES, payload, true));
+		Pixy2Line line = pixy.getLine();
+
+		measure("Pixy2Line.getFeatures",
+				() -> line.getFeatures(Pixy2Line.LINE_GET_MAIN_FEATURES, Pixy2Line.LINE_ALL_FEATURES, false));
+	}
+
+	@Test
+	public void getRGB() {
+		int[] points = new int[2 * RGB_POINTS];
+		byte[] recording = new byte[0];
+		for (int i = 0; i < RGB_POINTS; i++) {
+			points[2 * i] = 40 * i;
+			points[(2 * i) + 1] = 100;
+			recording = concat(recording, PlaybackLink.packet(Pixy2.PIXY_TYPE_RESPONSE_RESULT,
+					new byte[] { (byte) (30 * i), (byte) 128, (byte) (255 - (30 * i)), 0 }, true));
+		}
+		Pixy2 pixy = playback(recording);
+		Pixy2Video video = pixy.getVideo();
+		int[] out = new int[RGB_POINTS];
+
+		measure("Pixy2Video.getRGB (" + RGB_POINTS + " points)",
+				() -> video.getRGB(points, RGB_POINTS, out, false));
+	}
+
+	private static Pixy2 playback(byte[] recording) {
+		PlaybackLink link = new PlaybackLink(recording);
+		link.setLoop(true);
+		return Pixy2.createInstance(link);
+	}
+
+	private static byte[] feature(byte type, byte[] data) {
+		byte[] feature = new byte[2 + data.length];
+		feature[0] = type;
+		feature[1] = (byte) data.length;
+		System.arraycopy(data, 0, feature, 2, data.length);
+		return feature;
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		int length = 0;
+		for (byte[] part : parts) {
+			length += part.length;
+		}
+		byte[] joined = new byte[length];
+		int offset = 0;
+		for (byte[] part : parts) {
+			System.arraycopy(part, 0, joined, offset, part.length);
+			offset += part.length;
+		}
+		return joined;
+	}
+
+	private static void measure(String name, IntSupplier call) {
+		run(call, WARMUP_CALLS);
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		run(call, MEASURED_CALLS);
+		long elapsed = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+		System.out.printf("%s: %.1f ns/call, %.3f bytes/call%n", name,
+				(double) elapsed / MEASURED_CALLS, (double) allocated / MEASURED_CALLS);
+	}
+
+	private static void run(IntSupplier call, int calls) {
+		for (int i = 0; i < calls; i++) {
+			assertTrue(call.getAsInt() >= 0);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package pixy2api;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import pixy2api.links.PlaybackLink;
+
+/**
+ * Drives the Pixy2 protocol through a {@link PlaybackLink}
+ */
+public class Pixy2Test {
+	private static final byte[] VERSION_PAYLOAD = { 0x22, 0x00, 3, 0, 0x0e, 0x00, 'g', 'e', 'n', 'e', 'r', 'a', 'l',
+			0, 0, 0 };
+	private static final byte[] RESOLUTION_PAYLOAD = { 0x3c, 0x01, (byte) 0xd0, 0x00 };
+
+	private PlaybackLink link;
+	private Pixy2 pixy;
+
+	@BeforeEach
+	public void setup() {
+		link = new PlaybackLink();
+		pixy = Pixy2.createInstance(link);
+		link.open(0);
+	}
+
+	private static byte[] versionPacket(boolean checksum) {
+		return PlaybackLink.packet(Pixy2.PIXY_TYPE_RESPONSE_VERSION, VERSION_PAYLOAD, checksum);
+	}
+
+	@Test
+	public void parsesVersionWithChecksum() {
+		link.enqueue(versionPacket(true));
+
+		assertEquals(VERSION_PAYLOAD.length, pixy.getVersion());
+		Pixy2.Version version = pixy.getVersionInfo();
+		assertEquals(0x22, version.getHardware());
+		assertEquals(3, version.getFirmwareMajor());
+		assertEquals(0, version.getFirmwareMinor());
+		assertEquals(14, version.getFirmwareBuild());
+		assertTrue(version.getFirmwareTypeString().startsWith("general"));
+	}
+
+	@Test
+	public void parsesVersionWithoutChecksum() {
+		link.enqueue(versionPacket(false));
+
+		assertEquals(VERSION_PAYLOAD.length, pixy.getVersion());
+		assertEquals(0x22, pixy.getVersionInfo().getHardware());
+	}
+
+	@Test
+	public void sendsRequestHeader() {
+		link.enqueue(versionPacket(true));
+		pixy.getVersion();
+
+		byte[] expected = { (byte) 0xae, (byte) 0xc1, Pixy2.PIXY_TYPE_REQUEST_VERSION, 0 };
+		assertArrayEquals(expected, link.getSent());
+	}
+
+	@Test
+	public void findsSyncAfterNoise() {
+		link.enqueue(new byte[] { 0x12, (byte) 0xc1, (byte) 0xaf });
+		link.enqueue(versionPacket(true));
+
+		assertEquals(VERSION_PAYLOAD.length, pixy.getVersion());
+	}
+
+	@Test
+	public void givesUpWithoutSync() {
+		// Pixy2 sends at most a few stray bytes, 40 of noise means it isn't there
+		link.enqueue(new byte[40]);
+
+		assertEquals(Pixy2.PIXY_RESULT_ERROR, pixy.receivePacket());
+	}
+
+	@Test
+	public void givesUpWhenSilent() {
+		assertEquals(Pixy2.PIXY_RESULT_ERROR, pixy.receivePacket());
+	}
+
+	@Test
+	public void failedReadIsNotUsedForSync() {
+		// The flagged 0xc1 would pair with the 0xaf before it into a checksum sync
+		link.enqueue(new byte[] { (byte) 0xaf, (byte) 0xc1 });
+		link.errorAt(1);
+		link.enqueue(versionPacket(true));
+
+		assertEquals(Pixy2.PIXY_RESULT_OK, pixy.receivePacket());
+		assertEquals(Pixy2.PIXY_TYPE_RESPONSE_VERSION, pixy.type);
+		assertEquals(VERSION_PAYLOAD.length, pixy.length);
+	}
+
+	@Test
+	public void rejectsChecksumMismatch() {
+		link.enqueue(versionPacket(true));
+		// First payload byte
+		link.corrupt(6);
+
+		assertEquals(Pixy2.PIXY_RESULT_CHECKSUM_ERROR, pixy.receivePacket());
+	}
+
+	@Test
+	public void checksumResetsBetweenPackets() {
+		link.enqueue(versionPacket(true));
+		link.enqueue(versionPacket(true));
+		link.enqueue(versionPacket(true));
+		link.corrupt(6 + VERSION_PAYLOAD.length + 6);
+
+		assertEquals(Pixy2.PIXY_RESULT_OK, pixy.receivePacket());
+		assertEquals(Pixy2.PIXY_RESULT_CHECKSUM_ERROR, pixy.receivePacket());
+		assertEquals(Pixy2.PIXY_RESULT_OK, pixy.receivePacket());
+	}
+
+	@Test
+	public void reportsTimeoutInHeader() {
+		link.enqueue(versionPacket(true));
+		link.timeoutAt(3);
+
+		assertTrue(pixy.receivePacket() < 0);
+	}
+
+	@Test
+	public void reportsTimeoutInPayload() {
+		link.enqueue(versionPacket(true));
+		link.timeoutAt(10);
+
+		assertTrue(pixy.receivePacket() < 0);
+		assertTrue(pixy.getVersion() < 0);
+	}
+
+	@Test
+	public void recoversAfterTimeout() {
+		link.enqueue(versionPacket(true));
+		link.enqueue(versionPacket(true));
+		link.timeoutAt(10);
+
+		assertTrue(pixy.receivePacket() < 0);
+		// Rest of the cut off packet is noise ahead of the next sync
+		assertEquals(Pixy2.PIXY_RESULT_OK, pixy.receivePacket());
+		assertEquals(Pixy2.PIXY_TYPE_RESPONSE_VERSION, pixy.type);
+	}
+
+	@Test
+	public void parsesResolution() {
+		link.enqueue(PlaybackLink.packet(Pixy2.PIXY_TYPE_RESPONSE_RESOLUTION, RESOLUTION_PAYLOAD, true));
+
+		assertEquals(Pixy2.PIXY_RESULT_OK, pixy.getResolution());
+		assertEquals(316, pixy.getFrameWidth());
+		assertEquals(208, pixy.getFrameHeight());
+	}
+
+	@Test
+	public void initReadsVersionAndResolution() {
+		link.enqueue(versionPacket(true));
+		link.enqueue(PlaybackLink.packet(Pixy2.PIXY_TYPE_RESPONSE_RESOLUTION, RESOLUTION_PAYLOAD, true));
+
+		assertEquals(Pixy2.PIXY_RESULT_OK, pixy.init());
+		assertEquals(316, pixy.getFrameWidth());
+	}
+}
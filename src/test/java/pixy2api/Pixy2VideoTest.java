@@ -0,0 +1,71 @@
+package pixy2api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import pixy2api.links.PlaybackLink;
+
+/**
+ * Drives {@link Pixy2Video} through a {@link PlaybackLink}
+ */
+public class Pixy2VideoTest {
+	private PlaybackLink link;
+	private Pixy2Video video;
+
+	@BeforeEach
+	public void setup() {
+		link = new PlaybackLink();
+		video = Pixy2.createInstance(link).getVideo();
+	}
+
+	private void enqueueRGB(int r, int g, int b) {
+		link.enqueue(PlaybackLink.packet(Pixy2.PIXY_TYPE_RESPONSE_RESULT,
+				new byte[] { (byte) r, (byte) g, (byte) b, 0 }, true));
+	}
+
+	@Test
+	public void averagesPatch() {
+		enqueueRGB(10, 20, 30);
+		enqueueRGB(20, 40, 60);
+		enqueueRGB(30, 60, 90);
+		enqueueRGB(40, 80, 120);
+
+		assertEquals((25 << 16) | (50 << 8) | 75, video.getAverageRGB(100, 100, 2, 4, false));
+		assertEquals(0, link.available());
+	}
+
+	@Test
+	public void rejectsBadPatch() {
+		assertEquals(Pixy2.PIXY_RESULT_ERROR, video.getAverageRGB(100, 100, 0, 4, false));
+		assertEquals(Pixy2.PIXY_RESULT_ERROR, video.getAverageRGB(100, 100, -1, 4, false));
+		assertEquals(Pixy2.PIXY_RESULT_ERROR, video.getAverageRGB(100, 100, 3, 0, false));
+		// Nothing should have been requested
+		assertEquals(0, link.getSent().length);
+	}
+
+	@Test
+	public void samplesPoints() {
+		enqueueRGB(1, 2, 3);
+		enqueueRGB(4, 5, 6);
+		int[] out = new int[2];
+
+		assertEquals(2, video.getRGB(new int[] { 10, 10, 20, 20 }, 2, out, false));
+		assertEquals(0x010203, out[0]);
+		assertEquals(0x040506, out[1]);
+	}
+
+	@Test
+	public void rejectsShortArrays() {
+		assertEquals(Pixy2.PIXY_RESULT_ERROR, video.getRGB(new int[] { 10, 10, 20, 20 }, 2, new int[1], false));
+		assertEquals(Pixy2.PIXY_RESULT_ERROR, video.getRGB(new int[] { 10, 10 }, 2, new int[2], false));
+		assertEquals(Pixy2.PIXY_RESULT_ERROR, video.getRGBGrid(0, 0, 2, 2, 5, new int[3], false));
+		assertEquals(0, link.getSent().length);
+	}
+
+	@Test
+	public void reportsTimeout() {
+		assertEquals(Pixy2.PIXY_RESULT_ERROR, video.getAverageRGB(100, 100, 2, 4, false));
+	}
+}